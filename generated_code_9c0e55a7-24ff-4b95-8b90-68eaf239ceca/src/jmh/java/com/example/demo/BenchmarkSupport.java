@@ -0,0 +1,110 @@
+package com.example.demo;
+
+import com.example.demo.dto.TransactionCreateDTO;
+import com.example.demo.entity.Transaction;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Shared setup for the JMH benchmarks: an application context on a private in-memory H2
+ * database, and datasets generated from a fixed seed so every run measures the same input
+ */
+public final class BenchmarkSupport {
+    
+    public static final long SEED = 42L;
+    
+    /** Card of account 5001 in the V2 sample data */
+    public static final String CARD_NUMBER = "4532123456789012";
+    
+    /** Cards of accounts 5001 to 5005 in the V2 sample data */
+    public static final String[] SAMPLE_CARD_NUMBERS = {
+            CARD_NUMBER, "4532234567890123", "4532345678901234", "4532456789012345", "4532567890123456"};
+            
+    private static final String[] MERCHANTS = {"Whole Foods Market", "The Italian Bistro", "Shell Gas Station", "Amazon.com"};
+    private static final String[] CITIES = {"New York", "Chicago", "Seattle", "Austin"};
+    
+    private BenchmarkSupport() {
+    }
+    
+    /**
+     * Starts the application on a random port; command-line style arguments take
+     * precedence over application.properties, so SQL and debug logging stay off
+     *
+     * @param extraArgs Further --property=value overrides, e.g. to switch on virtual threads
+     */
+    public static ConfigurableApplicationContext startApplication(String... extraArgs) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.demo=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"));
+        args.addAll(List.of(extraArgs));
+        return SpringApplication.run(DemoApplication.class, args.toArray(String[]::new));
+    }
+    
+    /**
+     * A posting request for the sample card; credits and debits of the same amount cancel out,
+     * so alternating them never runs the account into its credit limit
+     */
+    public static TransactionCreateDTO createRequest(BigDecimal amount) {
+        TransactionCreateDTO createDTO = new TransactionCreateDTO();
+        createDTO.setCardNumber(CARD_NUMBER);
+        createDTO.setTypeCode("DB");
+        createDTO.setCategoryCode(1001);
+        createDTO.setSource("POS");
+        createDTO.setDescription("Benchmark purchase");
+        createDTO.setAmount(amount);
+        createDTO.setMerchantId(900001L);
+        createDTO.setMerchantName(MERCHANTS[0]);
+        createDTO.setMerchantCity(CITIES[0]);
+        createDTO.setMerchantZip("10001");
+        createDTO.setOriginalTimestamp(LocalDateTime.of(2025, 11, 10, 10, 0));
+        createDTO.setConfirmation("Y");
+        return createDTO;
+    }
+    
+    /**
+     * Detached transactions with realistic field values, as returned by the repositories
+     */
+    public static List<Transaction> transactions(int count) {
+        Random random = new Random(SEED);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int merchant = random.nextInt(MERCHANTS.length);
+            boolean debit = random.nextInt(4) != 0;
+            
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId(String.format("%016d", i + 1));
+            transaction.setCardNumber(CARD_NUMBER);
+            transaction.setAccountId(5001L);
+            transaction.setTypeCode(debit ? "DB" : "CR");
+            transaction.setCategoryCode(debit ? 1001 + random.nextInt(8) : 2001);
+            transaction.setSource("POS");
+            transaction.setDescription(MERCHANTS[merchant] + " Purchase");
+            transaction.setAmount(BigDecimal.valueOf(random.nextInt(100_000), 2));
+            transaction.setMerchantId(900001L + merchant);
+            transaction.setMerchantName(MERCHANTS[merchant]);
+            transaction.setMerchantCity(CITIES[random.nextInt(CITIES.length)]);
+            transaction.setMerchantZip(String.valueOf(10001 + merchant));
+            transaction.setOriginalTimestamp(start.plusMinutes(random.nextInt(525_600)));
+            transaction.setProcessedTimestamp(transaction.getOriginalTimestamp().plusSeconds(15));
+            transaction.setCreatedAt(transaction.getProcessedTimestamp());
+            transaction.setUpdatedAt(transaction.getProcessedTimestamp());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.controller;
+
+import com.example.demo.BenchmarkSupport;
+import com.example.demo.dto.TransactionDTO;
+import com.example.demo.dto.TransactionListDTO;
+import com.example.demo.entity.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the HashMap response envelopes built by the controllers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEnvelopeBenchmark {
+    
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+    
+    private ObjectMapper objectMapper;
+    private Map<String, Object> listResponse;
+    private Map<String, Object> singleResponse;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Same defaults as the ObjectMapper Spring Boot configures for MVC
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        
+        List<Transaction> transactions = BenchmarkSupport.transactions(pageSize);
+        List<TransactionListDTO> page = new ArrayList<>(pageSize);
+        for (Transaction transaction : transactions) {
+            page.add(new TransactionListDTO(transaction.getTransactionId(), transaction.getOriginalTimestamp(),
+                    transaction.getDescription(), transaction.getAmount(), "Debit", "Groceries",
+                    transaction.getTypeCode(), transaction.getCategoryCode()));
+        }
+        
+        // Shaped like TransactionController.listTransactions
+        listResponse = new HashMap<>();
+        listResponse.put("success", true);
+        listResponse.put("data", page);
+        listResponse.put("currentPage", 0);
+        listResponse.put("totalItems", (long) pageSize * 10);
+        listResponse.put("totalPages", 10);
+        
+        Transaction first = transactions.get(0);
+        TransactionDTO transaction = new TransactionDTO(first.getTransactionId(), first.getCardNumber(), first.getAccountId(),
+                first.getTypeCode(), "Debit", first.getCategoryCode(), "Groceries", first.getSource(), first.getDescription(),
+                first.getAmount(), first.getMerchantId(), first.getMerchantName(), first.getMerchantCity(),
+                first.getMerchantZip(), first.getOriginalTimestamp(), first.getProcessedTimestamp());
+        
+        // Shaped like TransactionController.getTransactionById
+        singleResponse = new HashMap<>();
+        singleResponse.put("success", true);
+        singleResponse.put("data", transaction);
+    }
+    
+    @Benchmark
+    public byte[] listEnvelope() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listResponse);
+    }
+    
+    @Benchmark
+    public byte[] singleEnvelope() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(singleResponse);
+    }
+}
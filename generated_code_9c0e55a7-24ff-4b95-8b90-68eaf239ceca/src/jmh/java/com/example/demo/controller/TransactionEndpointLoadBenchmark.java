@@ -0,0 +1,105 @@
+package com.example.demo.controller;
+
+import com.example.demo.BenchmarkSupport;
+import com.example.demo.dto.TransactionCreateDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GET and POST /api/transactions over HTTP under concurrent load, with Tomcat on its platform
+ * thread pool and on virtual threads. Throughput mode gives requests per second and sample
+ * mode the latency percentiles (p99 in the JMH output). Override the client count with -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(128)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TransactionEndpointLoadBenchmark {
+    
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+    
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest listRequest;
+    private String baseUrl;
+    private ObjectMapper objectMapper;
+    private final AtomicInteger clients = new AtomicInteger();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication("--spring.threads.virtual.enabled=" + virtualThreads);
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/transactions";
+        objectMapper = context.getBean(ObjectMapper.class);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        listRequest = HttpRequest.newBuilder(URI.create(baseUrl + "?page=0&size=20")).GET().build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    /**
+     * One simulated client: posts alternating credits and debits to one of the sample cards
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private HttpRequest credit;
+        private HttpRequest debit;
+        private boolean postCredit;
+        
+        @Setup(Level.Trial)
+        public void setUp(TransactionEndpointLoadBenchmark benchmark) throws IOException {
+            String cardNumber = BenchmarkSupport.SAMPLE_CARD_NUMBERS[
+                    benchmark.clients.getAndIncrement() % BenchmarkSupport.SAMPLE_CARD_NUMBERS.length];
+            credit = benchmark.postRequest(cardNumber, new BigDecimal("0.01"));
+            debit = benchmark.postRequest(cardNumber, new BigDecimal("-0.01"));
+        }
+    }
+    
+    @Benchmark
+    public int listTransactions() throws IOException, InterruptedException {
+        return send(listRequest, 200);
+    }
+    
+    @Benchmark
+    public int createTransaction(Client state) throws IOException, InterruptedException {
+        state.postCredit = !state.postCredit;
+        return send(state.postCredit ? state.credit : state.debit, 201);
+    }
+    
+    private HttpRequest postRequest(String cardNumber, BigDecimal amount) throws IOException {
+        TransactionCreateDTO createDTO = BenchmarkSupport.createRequest(amount);
+        createDTO.setCardNumber(cardNumber);
+        return HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(createDTO)))
+                .build();
+    }
+    
+    private int send(HttpRequest request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + ": " + new String(response.body()));
+        }
+        return response.body().length;
+    }
+}
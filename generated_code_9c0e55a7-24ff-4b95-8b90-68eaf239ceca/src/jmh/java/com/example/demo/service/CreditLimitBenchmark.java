@@ -0,0 +1,53 @@
+package com.example.demo.service;
+
+import com.example.demo.BenchmarkSupport;
+import com.example.demo.entity.Account;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BigDecimal credit-limit check applied to every posting (TransactionService.isOverLimit)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditLimitBenchmark {
+    
+    @Param({"100", "10000"})
+    public int postings;
+    
+    private Account[] accounts;
+    private BigDecimal[] amounts;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkSupport.SEED);
+        accounts = new Account[postings];
+        amounts = new BigDecimal[postings];
+        for (int i = 0; i < postings; i++) {
+            Account account = new Account();
+            account.setCreditLimit(BigDecimal.valueOf(1_000_000 + random.nextInt(1_000_000), 2));
+            account.setCurrentCycleCredit(BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+            account.setCurrentCycleDebit(BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+            accounts[i] = account;
+            amounts[i] = BigDecimal.valueOf(random.nextInt(200_000) - 100_000, 2);
+        }
+    }
+    
+    @Benchmark
+    public int isOverLimit() {
+        int overLimit = 0;
+        for (int i = 0; i < postings; i++) {
+            if (TransactionService.isOverLimit(accounts[i], amounts[i])) {
+                overLimit++;
+            }
+        }
+        return overLimit;
+    }
+}
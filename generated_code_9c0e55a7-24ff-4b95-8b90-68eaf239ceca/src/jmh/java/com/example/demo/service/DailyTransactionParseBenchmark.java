@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionCreateDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a daily transaction file of 100k records: mapped reads parse the records in place with
+ * DailyTransactionRecordParser; lineReader is the line-by-line String equivalent, with substring,
+ * BigDecimal and DateTimeFormatter parsing of every field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DailyTransactionParseBenchmark {
+    
+    private static final int RECORD_LENGTH = DailyTransactionRecordParser.RECORD_LENGTH + 1;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH.mm.ss.SSSSSS");
+    
+    @Param({"100000"})
+    public int records;
+    
+    private Path file;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("dalytran", ".txt");
+        StringBuilder text = new StringBuilder(records * RECORD_LENGTH);
+        for (int i = 0; i < records; i++) {
+            text.append(String.format("%016d", i)).append("DB").append("1001").append(pad("POS TERM", 10))
+                    .append(pad("Purchase " + i, 100)).append(String.format("%010d", i % 100_000)).append('{')
+                    .append(String.format("%09d", 900_000 + i % 1000)).append(pad("Merchant " + i % 1000, 50))
+                    .append(pad("New York", 50)).append(pad("10001", 10)).append("4532123456789012")
+                    .append("2025-11-10-09.15.00.000000").append("2025-11-10-09.15.00.000000").append(pad("", 20))
+                    .append('\n');
+        }
+        Files.writeString(file, text, StandardCharsets.ISO_8859_1);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public void mapped(Blackhole blackhole) throws IOException {
+        DailyTransactionRecordParser parser = new DailyTransactionRecordParser();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int i = 0; i < records; i++) {
+                int position = i * RECORD_LENGTH;
+                blackhole.consume(parser.transactionId(buffer, position));
+                blackhole.consume(parser.parse(buffer, position));
+            }
+        }
+    }
+    
+    @Benchmark
+    public void lineReader(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(line.substring(0, 16).trim());
+                String amount = line.substring(132, 143);
+                blackhole.consume(new TransactionCreateDTO(
+                        line.substring(262, 278).trim(), line.substring(16, 18).trim(),
+                        Integer.parseInt(line.substring(18, 22)), line.substring(22, 32).trim(),
+                        line.substring(32, 132).trim(),
+                        new BigDecimal(amount.substring(0, 10) + "0").movePointLeft(2),
+                        Long.parseLong(line.substring(143, 152)), line.substring(152, 202).trim(),
+                        line.substring(202, 252).trim(), line.substring(252, 262).trim(),
+                        LocalDateTime.parse(line.substring(278, 304), TIMESTAMP), "Y"));
+            }
+        }
+    }
+    
+    private static String pad(String value, int length) {
+        return String.format("%-" + length + "s", value);
+    }
+}
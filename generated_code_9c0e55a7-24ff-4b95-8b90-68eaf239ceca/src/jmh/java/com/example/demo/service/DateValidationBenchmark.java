@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DateValidationService on a valid date, a day past the end of the month (moved back by the
+ * resolver), a month out of range and unparseable input, plus the LocalDate and bulk variants.
+ * Logging of the service is switched off so the parse itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateValidationBenchmark {
+    
+    private static final int BULK_SIZE = 1000;
+    
+    @Param({"2025-11-10", "2025-02-30", "2025-13-01", "not-a-date"})
+    public String input;
+    
+    private DateValidationService dateValidationService;
+    private LocalDate date;
+    private List<String> bulkInput;
+    
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(DateValidationService.class)).setLevel(Level.OFF);
+        dateValidationService = new DateValidationService();
+        date = LocalDate.of(2025, 11, 10);
+        bulkInput = Collections.nCopies(BULK_SIZE, input);
+    }
+    
+    @Benchmark
+    public boolean validateDateWithFormat() {
+        return dateValidationService.validateDate(input, "yyyy-MM-dd");
+    }
+    
+    @Benchmark
+    public boolean validateDateDefaultFormat() {
+        return dateValidationService.validateDate(input);
+    }
+    
+    @Benchmark
+    public boolean validateLocalDate() {
+        return dateValidationService.validateDate(date);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public boolean[] validateAll() {
+        return dateValidationService.validateAll(bulkInput, DateValidationService.DEFAULT_FORMAT);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interest calculation (InterestCalculator) over a synthetic transaction_category_balances table of
+ * 10M rows, five categories per account. Rows are generated on the fly in account order, as the
+ * engine streams them, so the table never has to fit in memory. longCents splits the accounts into
+ * partitions run on a ForkJoinPool; bigDecimal is the single-threaded BigDecimal equivalent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InterestCalculationBenchmark {
+
+    private static final String[] TYPE_CODES = {"DB", "DB", "DB", "FE", "CR"};
+    private static final int[] CATEGORY_CODES = {1001, 1004, 1006, 4002, 2001};
+    private static final int[] RATES_BPS = {2199, 2199, 2499, 2199, 0};
+    private static final int ROWS_PER_ACCOUNT = TYPE_CODES.length;
+    private static final long FIRST_ACCOUNT_ID = 10_000_000L;
+
+    @Param({"10000000"})
+    public int rows;
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private Map<Long, Integer> rates;
+    private long[] rateKeys;
+    private BigDecimal[] ratePercents;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rates = new HashMap<>();
+        rateKeys = new long[ROWS_PER_ACCOUNT];
+        ratePercents = new BigDecimal[ROWS_PER_ACCOUNT];
+        for (int i = 0; i < ROWS_PER_ACCOUNT; i++) {
+            rateKeys[i] = InterestCalculator.rateKey(TYPE_CODES[i], CATEGORY_CODES[i]);
+            ratePercents[i] = BigDecimal.valueOf(RATES_BPS[i], 2);
+            if (RATES_BPS[i] > 0) {
+                rates.put(rateKeys[i], RATES_BPS[i]);
+            }
+        }
+        pool = new ForkJoinPool(partitions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long longCents() {
+        long accounts = rows / ROWS_PER_ACCOUNT;
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            long first = FIRST_ACCOUNT_ID + accounts * p / partitions;
+            long last = FIRST_ACCOUNT_ID + accounts * (p + 1) / partitions;
+            tasks.add(pool.submit(() -> calculateRange(first, last)));
+        }
+        long totalCents = 0;
+        for (ForkJoinTask<Long> task : tasks) {
+            totalCents += task.join();
+        }
+        return totalCents;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        long accounts = rows / ROWS_PER_ACCOUNT;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal twelveHundred = BigDecimal.valueOf(1200);
+        for (long accountId = FIRST_ACCOUNT_ID; accountId < FIRST_ACCOUNT_ID + accounts; accountId++) {
+            for (int i = 0; i < ROWS_PER_ACCOUNT; i++) {
+                BigDecimal balance = BigDecimal.valueOf(balanceCents(accountId, i), 2);
+                total = total.add(balance.multiply(ratePercents[i]).divide(twelveHundred, 2, RoundingMode.HALF_UP));
+            }
+        }
+        return total;
+    }
+
+    private long calculateRange(long firstAccountId, long endAccountId) {
+        long[] total = new long[1];
+        InterestCalculator calculator = new InterestCalculator(rates, (accountId, interestCents) -> total[0] += interestCents);
+        for (long accountId = firstAccountId; accountId < endAccountId; accountId++) {
+            for (int i = 0; i < ROWS_PER_ACCOUNT; i++) {
+                calculator.accept(accountId, rateKeys[i], balanceCents(accountId, i));
+            }
+        }
+        calculator.finish();
+        return total[0];
+    }
+
+    /**
+     * Deterministic pseudo-random balance between -1,000.00 and 9,000.00
+     */
+    private static long balanceCents(long accountId, int row) {
+        long hash = (accountId * 31 + row) * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(hash ^ (hash >>> 29), 1_000_000L) - 100_000L;
+    }
+}
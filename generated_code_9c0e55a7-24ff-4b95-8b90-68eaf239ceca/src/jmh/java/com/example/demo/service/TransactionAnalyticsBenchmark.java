@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals by merchant over one year of synthetic transactions (5,000 accounts, 20,000 merchants).
+ * columnStore scans a TransactionColumnStore split over partitions; entities groups the same rows
+ * held as Transaction entities, summing BigDecimal amounts into a HashMap, as the list reports do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TransactionAnalyticsBenchmark {
+
+    private static final String[] TYPE_CODES = {"DB", "DB", "DB", "CR", "FE"};
+    private static final int[] CATEGORY_CODES = {1001, 1002, 1004, 2001, 4002};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    private static final int DAYS = 365;
+    private static final int ACCOUNTS = 5_000;
+    private static final int MERCHANTS = 20_000;
+
+    @Param({"5000000"})
+    public int rows;
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private TransactionColumnStore store;
+    private List<Transaction> transactions;
+    private ForkJoinPool pool;
+    private int fromDay;
+    private int toDay;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new TransactionColumnStore();
+        transactions = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            long hash = row * 0x9E3779B97F4A7C15L;
+            int kind = (int) Math.floorMod(hash >>> 7, (long) TYPE_CODES.length);
+            long accountId = 10_000_000L + Math.floorMod(hash >>> 13, (long) ACCOUNTS);
+            long merchantId = 900_000L + Math.floorMod(hash >>> 29, (long) MERCHANTS);
+            long amountCents = Math.floorMod(hash >>> 41, 50_000L) + 1;
+            LocalDate day = FIRST_DAY.plusDays(row % DAYS);
+
+            store.append(accountId, TYPE_CODES[kind], CATEGORY_CODES[kind], amountCents, merchantId,
+                    "Merchant " + merchantId, (int) day.toEpochDay());
+            Transaction transaction = new Transaction();
+            transaction.setAccountId(accountId);
+            transaction.setTypeCode(TYPE_CODES[kind]);
+            transaction.setCategoryCode(CATEGORY_CODES[kind]);
+            transaction.setAmount(BigDecimal.valueOf(amountCents, 2));
+            transaction.setMerchantId(merchantId);
+            transaction.setOriginalTimestamp(day.atTime(12, 0));
+            transactions.add(transaction);
+        }
+        pool = new ForkJoinPool(partitions);
+        // The second quarter
+        fromDay = (int) FIRST_DAY.plusMonths(3).toEpochDay();
+        toDay = (int) FIRST_DAY.plusMonths(6).minusDays(1).toEpochDay();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long[] columnStore() {
+        return store.aggregate(TransactionColumnStore.Dimension.MERCHANT, fromDay, toDay, null, null, pool, partitions).sumCents();
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> entities() {
+        LocalDateTime from = LocalDate.ofEpochDay(fromDay).atStartOfDay();
+        LocalDateTime until = LocalDate.ofEpochDay(toDay + 1L).atStartOfDay();
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            LocalDateTime timestamp = transaction.getOriginalTimestamp();
+            if (!timestamp.isBefore(from) && timestamp.isBefore(until)) {
+                totals.merge(transaction.getMerchantId(), transaction.getAmount(), BigDecimal::add);
+            }
+        }
+        return totals;
+    }
+}
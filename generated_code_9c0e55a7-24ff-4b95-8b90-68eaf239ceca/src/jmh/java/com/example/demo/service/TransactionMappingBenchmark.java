@@ -0,0 +1,64 @@
+package com.example.demo.service;
+
+import com.example.demo.BenchmarkSupport;
+import com.example.demo.dto.TransactionListDTO;
+import com.example.demo.entity.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping of a page of transactions, and the reference-data description lookups applied to projected list rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TransactionMappingBenchmark {
+    
+    @Param({"10", "1000"})
+    public int pageSize;
+    
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private List<Transaction> transactions;
+    private List<TransactionListDTO> listItems;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        // The bean is a transactional proxy; the mapping methods live on the target
+        transactionService = (TransactionService) AopProxyUtils.getSingletonTarget(context.getBean(TransactionService.class));
+        transactions = BenchmarkSupport.transactions(pageSize);
+        // Shaped like the rows the list projection query returns
+        listItems = transactions.stream()
+                .map(transaction -> new TransactionListDTO(transaction.getTransactionId(), transaction.getOriginalTimestamp(),
+                        transaction.getDescription(), transaction.getAmount(), transaction.getTypeCode(), transaction.getCategoryCode()))
+                .toList();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public void mapToDTO(Blackhole blackhole) {
+        for (Transaction transaction : transactions) {
+            blackhole.consume(transactionService.mapToDTO(transaction));
+        }
+    }
+    
+    @Benchmark
+    public void describeListItems(Blackhole blackhole) {
+        for (TransactionListDTO item : listItems) {
+            blackhole.consume(transactionService.describe(item));
+        }
+    }
+}
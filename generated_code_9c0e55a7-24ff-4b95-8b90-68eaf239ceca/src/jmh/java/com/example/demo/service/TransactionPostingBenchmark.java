@@ -0,0 +1,65 @@
+package com.example.demo.service;
+
+import com.example.demo.BenchmarkSupport;
+import com.example.demo.dto.TransactionCreateDTO;
+import com.example.demo.dto.TransactionDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end single posting through TransactionService.createTransaction on embedded H2:
+ * card routing, ID allocation, account lock, balance and rollup updates and the commit
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TransactionPostingBenchmark {
+    
+    private static final int SEED_BATCH_SIZE = 1000;
+    
+    /** Transactions already posted to the account before measuring */
+    @Param({"0", "10000"})
+    public int existingTransactions;
+    
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private TransactionCreateDTO credit;
+    private TransactionCreateDTO debit;
+    private boolean postCredit;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        transactionService = context.getBean(TransactionService.class);
+        credit = BenchmarkSupport.createRequest(new BigDecimal("0.01"));
+        debit = BenchmarkSupport.createRequest(new BigDecimal("-0.01"));
+        
+        List<TransactionCreateDTO> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < existingTransactions; i++) {
+            batch.add(i % 2 == 0 ? credit : debit);
+            if (batch.size() == SEED_BATCH_SIZE || i == existingTransactions - 1) {
+                transactionService.createTransactions(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public TransactionDTO createTransaction() {
+        postCredit = !postCredit;
+        return transactionService.createTransaction(postCredit ? credit : debit);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends @Transactional(readOnly = true) work to read replicas and everything else to the
+ * primary. The application's DataSource is a LazyConnectionDataSourceProxy: a transaction only
+ * takes a physical connection at its first statement, when its read-only flag is known, and
+ * read-only ones take it from the ReplicaRoutingDataSource. Work outside a read-only transaction
+ * (postings, jobs, JdbcTemplate batches, Flyway) always runs on the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+@Slf4j
+public class ReadWriteRoutingConfig {
+    
+    /**
+     * The pool Spring Boot would have created, configured by spring.datasource.*
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+    
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${datasource.routing.replica-urls}") List<String> replicaUrls,
+            @Value("${datasource.routing.replica-username:${spring.datasource.username:sa}}") String username,
+            @Value("${datasource.routing.replica-password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.routing.replica-pool-size:10}") int poolSize,
+            @Value("${datasource.routing.replica-connection-timeout:1s}") Duration connectionTimeout,
+            @Value("${datasource.routing.health-check-interval:5s}") Duration healthCheckInterval,
+            @Value("${datasource.routing.lag-query:}") String lagQuery,
+            @Value("${datasource.routing.max-lag:5s}") Duration maxLag,
+            @Value("${datasource.routing.replica-migrate:false}") boolean migrate,
+            @Value("${spring.flyway.locations:classpath:db/migration}") String[] migrationLocations) {
+        if (replicaUrls.isEmpty()) {
+            throw new IllegalArgumentException("datasource.routing.replica-urls must name at least one replica");
+        }
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String url = replicaUrls.get(i);
+            if (migrate) {
+                // Local stand-in replicas only: give an empty database the primary's schema and seed data
+                Flyway.configure().dataSource(url, username, password).locations(migrationLocations)
+                        .baselineOnMigrate(true).load().migrate();
+            }
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + (i + 1));
+            pool.setJdbcUrl(url);
+            pool.setUsername(username);
+            pool.setPassword(password);
+            if (properties.getDriverClassName() != null) {
+                pool.setDriverClassName(properties.getDriverClassName());
+            }
+            pool.setMaximumPoolSize(poolSize);
+            pool.setMinimumIdle(poolSize);
+            pool.setReadOnly(true);
+            // Short, so a replica that went away costs a read a moment before it falls over to the next one
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            // Start even when a replica is down; the health check routes around it until it comes back
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(pool);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, pools, lagQuery, maxLag, healthCheckInterval, meterRegistry);
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+}
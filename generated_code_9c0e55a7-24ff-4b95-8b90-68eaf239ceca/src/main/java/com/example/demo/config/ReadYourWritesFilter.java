@@ -0,0 +1,91 @@
+package com.example.demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Staleness guard for replica reads. A request that may write (any method but GET, HEAD and
+ * OPTIONS) runs pinned to the primary and gets a cookie pinning the caller's following requests
+ * to the primary for the read-your-writes window, so a client reading back what it just posted
+ * doesn't hit a replica that hasn't replayed it yet. Other callers keep reading from replicas.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    
+    static final String COOKIE_NAME = "primary-pin";
+    
+    private static final String API_PREFIX = "/api/";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+    private final Duration window;
+    
+    public ReadYourWritesFilter(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                @Value("${datasource.routing.read-your-writes-window:5s}") Duration window) {
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+        this.window = window;
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean pinned;
+        if (!READ_METHODS.contains(request.getMethod())) {
+            // Set before the response is committed; the pin expires on the client and on the server alike
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + window.toMillis()));
+            cookie.setPath("/api");
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            pinned = true;
+        } else {
+            pinned = pinnedUntil(request) > now;
+        }
+        
+        if (!pinned) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        replicaRoutingDataSource.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            replicaRoutingDataSource.unpin();
+        }
+    }
+    
+    private static long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections for read-only transactions: round-robin over the replica pools that
+ * passed their last health check, skipping a replica whose connection fails, and falling back to
+ * the primary when no replica is usable. A replica is healthy when it answers a validation
+ * check and, if a lag query is configured, lags the primary by at most max-lag. Threads pinned
+ * with pinToPrimary() read from the primary, so a caller sees its own writes.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final Duration healthCheckInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+    private ScheduledExecutorService healthChecker;
+    
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<HikariDataSource> replicaPools,
+                                    String lagQuery,
+                                    Duration maxLag,
+                                    Duration healthCheckInterval,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.healthCheckInterval = healthCheckInterval;
+        this.replicas = replicaPools.stream().map(pool -> new Replica(pool, meterRegistry)).toList();
+        this.pinnedReads = readCounter(meterRegistry, "primary", "pinned");
+        this.fallbackReads = readCounter(meterRegistry, "primary", "no_replica");
+    }
+    
+    /**
+     * Routes the read-only transactions of the current thread to the primary until unpin()
+     */
+    public void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+    
+    public void unpin() {
+        PINNED.remove();
+    }
+    
+    @PostConstruct
+    public void start() {
+        replicas.forEach(this::check);
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(() -> replicas.forEach(this::check),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Read-only transactions routed to {} replica(s), health checked every {}", replicas.size(), healthCheckInterval);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.pool.close());
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (PINNED.get() != null) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // The replica and primary pools connect with their own credentials, so the given ones are ignored
+        return getConnection();
+    }
+    
+    private void check(Replica replica) {
+        try (Connection connection = replica.pool.getConnection()) {
+            if (!connection.isValid(2)) {
+                markDown(replica, "connection is not valid");
+                return;
+            }
+            if (StringUtils.hasText(lagQuery)) {
+                double lagSeconds = lagSeconds(connection);
+                replica.lagSeconds = lagSeconds;
+                if (lagSeconds > maxLag.toMillis() / 1000.0) {
+                    markDown(replica, "lagging " + lagSeconds + "s behind the primary");
+                    return;
+                }
+            }
+            if (!replica.healthy) {
+                replica.healthy = true;
+                log.info("Replica {} is healthy, routing reads to it", replica.pool.getPoolName());
+            }
+        } catch (SQLException | RuntimeException e) {
+            markDown(replica, e.getMessage());
+        }
+    }
+    
+    private double lagSeconds(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            // No row or NULL: the replica has nothing to replay, so it is not behind
+            return resultSet.next() ? resultSet.getDouble(1) : 0;
+        }
+    }
+    
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Replica {} is unhealthy, routing its reads elsewhere: {}", replica.pool.getPoolName(), reason);
+        }
+    }
+    
+    private static Counter readCounter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("datasource.routing.reads")
+                .description("Connections handed out to read-only transactions, by the data source serving them")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+    
+    private static class Replica {
+        
+        private final HikariDataSource pool;
+        private final Counter reads;
+        // Not routed to until the first health check passes
+        private volatile boolean healthy;
+        private volatile double lagSeconds;
+        
+        Replica(HikariDataSource pool, MeterRegistry meterRegistry) {
+            this.pool = pool;
+            this.reads = readCounter(meterRegistry, pool.getPoolName(), "round_robin");
+            Gauge.builder("datasource.routing.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                    .description("Whether the replica passed its last health check")
+                    .tag("replica", pool.getPoolName())
+                    .register(meterRegistry);
+            Gauge.builder("datasource.routing.replica.lag", this, replica -> replica.lagSeconds)
+                    .description("Replication lag measured by the last health check")
+                    .tag("replica", pool.getPoolName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.AccountDTO;
+import com.example.demo.dto.CategoryBalanceDTO;
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.TransactionDTO;
 import com.example.demo.service.AccountService;
+import com.example.demo.service.TransactionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,19 +26,24 @@ import java.util.Map;
 public class AccountController {
     
     private final AccountService accountService;
+    private final TransactionService transactionService;
     
     /**
-     * Get an account by ID
+     * Get an account by ID; answers 304 to If-None-Match or If-Modified-Since while the account is unchanged
      */
     @GetMapping("/{accountId}")
-    public ResponseEntity<Map<String, Object>> getAccount(@PathVariable Long accountId) {
+    public ResponseEntity<Map<String, Object>> getAccount(@PathVariable Long accountId, WebRequest webRequest) {
         log.info("GET /api/accounts/{}", accountId);
         try {
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, accountService.getAccountVersion(accountId));
+            if (notModified != null) {
+                return notModified;
+            }
             AccountDTO account = accountService.getAccountById(accountId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", account);
-            return ResponseEntity.ok(response);
+            return ConditionalGets.ok(response);
         } catch (RuntimeException e) {
             log.error("Error fetching account: {}", e.getMessage());
             Map<String, Object> response = new HashMap<>();
@@ -41,6 +53,62 @@ public class AccountController {
         }
     }
     
+    /**
+     * Get the balances of an account by transaction type and category; conditional on the account version
+     */
+    @GetMapping("/{accountId}/category-balances")
+    public ResponseEntity<Map<String, Object>> getCategoryBalances(@PathVariable Long accountId, WebRequest webRequest) {
+        log.info("GET /api/accounts/{}/category-balances", accountId);
+        try {
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, accountService.getAccountVersion(accountId));
+            if (notModified != null) {
+                return notModified;
+            }
+            List<CategoryBalanceDTO> balances = accountService.getCategoryBalances(accountId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", balances);
+            response.put("count", balances.size());
+            return ConditionalGets.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error fetching category balances: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+    
+    /**
+     * Get one page of the transactions of an account, newest first, optionally within a
+     * startDate/endDate window; pass nextCursor or prevCursor with the same window to page.
+     * Conditional on the account version.
+     */
+    @GetMapping("/{accountId}/transactions")
+    public ResponseEntity<Map<String, Object>> getTransactions(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        log.info("GET /api/accounts/{}/transactions?startDate={}&endDate={}&cursor={}&size={}", accountId, startDate, endDate, cursor, size);
+        try {
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, accountService.getAccountVersion(accountId));
+            if (notModified != null) {
+                return notModified;
+            }
+            CursorPageDTO<TransactionDTO> transactions = transactionService.getTransactionsByAccountId(accountId, startDate, endDate, cursor, size);
+            return ConditionalGets.ok(TransactionController.cursorPageResponse(transactions));
+        } catch (RuntimeException e) {
+            log.error("Error fetching account transactions: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
     /**
      * Get all accounts
      */
@@ -64,18 +132,22 @@ public class AccountController {
     }
     
     /**
-     * Get accounts by customer ID
+     * Get accounts by customer ID; conditional on the versions of the customer's accounts
      */
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<Map<String, Object>> getAccountsByCustomer(@PathVariable Long customerId) {
+    public ResponseEntity<Map<String, Object>> getAccountsByCustomer(@PathVariable Long customerId, WebRequest webRequest) {
         log.info("GET /api/accounts/customer/{}", customerId);
         try {
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, accountService.getCustomerAccountsVersion(customerId));
+            if (notModified != null) {
+                return notModified;
+            }
             List<AccountDTO> accounts = accountService.getAccountsByCustomerId(customerId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", accounts);
             response.put("count", accounts.size());
-            return ResponseEntity.ok(response);
+            return ConditionalGets.ok(response);
         } catch (Exception e) {
             log.error("Error fetching accounts by customer: {}", e.getMessage());
             Map<String, Object> response = new HashMap<>();
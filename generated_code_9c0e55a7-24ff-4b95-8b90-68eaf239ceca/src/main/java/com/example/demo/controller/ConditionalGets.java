@@ -0,0 +1,54 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.ResourceVersionDTO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Conditional GETs: the ETag and Last-Modified of a response are derived from the version of the
+ * resource, which is read before the resource itself, so a client whose copy is current gets a
+ * 304 without the full query or serialization. A change committed between the two reads only
+ * makes the next request a full one again.
+ */
+final class ConditionalGets {
+    
+    // Clients may store responses but must revalidate them on every use
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private ConditionalGets() {
+    }
+    
+    /**
+     * Checks If-None-Match and If-Modified-Since against the version, setting the ETag and
+     * Last-Modified response headers either way
+     *
+     * @param version Empty when the resource doesn't exist; the request is then served in full
+     * @return the 304 response, or null when the response has to be built
+     */
+    static ResponseEntity<Map<String, Object>> notModified(WebRequest request, Optional<ResourceVersionDTO> version) {
+        if (version.isEmpty()) {
+            return null;
+        }
+        ResourceVersionDTO current = version.get();
+        long lastModified = current.getLastModified() == null ? -1
+                : current.getLastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String etag = "\"" + current.getVersion() + "-" + Math.max(lastModified, 0) + "\"";
+        if (!request.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
+    
+    /**
+     * 200 response for a resource whose validators were set by notModified
+     */
+    static ResponseEntity<Map<String, Object>> ok(Map<String, Object> body) {
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(body);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.CycleCloseStatusDTO;
+import com.example.demo.service.CycleCloseJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/billing/cycle-close")
+@RequiredArgsConstructor
+@Slf4j
+public class CycleCloseController {
+    
+    private final CycleCloseJob cycleCloseJob;
+    
+    /**
+     * Start closing the billing cycle of all accounts in the background, or resume an
+     * interrupted close of the same cycle; poll the status endpoint for progress
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startCycleClose(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cycleEndDate) {
+        log.info("POST /api/billing/cycle-close?cycleEndDate={}", cycleEndDate);
+        try {
+            CycleCloseStatusDTO status = cycleCloseJob.start(cycleEndDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", status);
+            boolean started = CycleCloseJob.STATUS_RUNNING.equals(status.getStatus());
+            response.put("message", started ? "Cycle close started" : "Cycle is already closed");
+            return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.OK).body(response);
+        } catch (RuntimeException e) {
+            log.error("Error starting cycle close: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+    
+    /**
+     * Get the progress of the close of a billing cycle, per account range
+     */
+    @GetMapping("/{cycleEndDate}")
+    public ResponseEntity<Map<String, Object>> getCycleCloseStatus(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cycleEndDate) {
+        log.info("GET /api/billing/cycle-close/{}", cycleEndDate);
+        try {
+            CycleCloseStatusDTO status = cycleCloseJob.getStatus(cycleEndDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", status);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error fetching cycle close status: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.InterestRunDTO;
+import com.example.demo.service.InterestCalculationEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/billing/interest")
+@RequiredArgsConstructor
+@Slf4j
+public class InterestController {
+    
+    private final InterestCalculationEngine interestCalculationEngine;
+    
+    /**
+     * Start calculating and posting the monthly interest of all accounts from their category
+     * balances in the background; poll the run endpoint for progress
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> runInterest(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate runDate) {
+        log.info("POST /api/billing/interest?runDate={}", runDate);
+        try {
+            InterestRunDTO run = interestCalculationEngine.run(runDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Interest calculation started");
+            response.put("data", run);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (RuntimeException e) {
+            log.error("Error starting interest calculation: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+    
+    /**
+     * Get the status and totals of the interest run of a date, so far while it is RUNNING
+     */
+    @GetMapping("/{runDate}")
+    public ResponseEntity<Map<String, Object>> getInterestRun(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate runDate) {
+        log.info("GET /api/billing/interest/{}", runDate);
+        try {
+            InterestRunDTO run = interestCalculationEngine.getRun(runDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", run);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error fetching interest run: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ReferenceDataRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint (/actuator/referencedata) showing the loaded reference data and,
+ * on POST, reloading it after transaction types or categories were changed in the database
+ */
+@Component
+@Endpoint(id = "referencedata")
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataEndpoint {
+    
+    private final ReferenceDataRegistry referenceDataRegistry;
+    
+    @ReadOperation
+    public ReferenceDataRegistry.Summary summary() {
+        return referenceDataRegistry.getSummary();
+    }
+    
+    @WriteOperation
+    public ReferenceDataRegistry.Summary reload() {
+        log.info("Reloading reference data");
+        return referenceDataRegistry.reload();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.TransactionArchiveDTO;
+import com.example.demo.service.TransactionArchiveJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/archive/transactions")
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionArchiveController {
+    
+    private final TransactionArchiveJob transactionArchiveJob;
+    
+    /**
+     * Start moving old transactions into the archive in the background; poll the status endpoint for progress
+     *
+     * @param cutoffDate Archive transactions from before this day; defaults to the configured minimum age
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startArchival(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cutoffDate) {
+        log.info("POST /api/archive/transactions?cutoffDate={}", cutoffDate);
+        try {
+            TransactionArchiveDTO status = transactionArchiveJob.start(cutoffDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", status);
+            response.put("message", "Transaction archival started");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (RuntimeException e) {
+            log.error("Error starting transaction archival: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+    
+    /**
+     * Get the size of the archive and the progress of the latest archival run
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getArchiveStatus() {
+        log.info("GET /api/archive/transactions");
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", transactionArchiveJob.getStatus());
+        return ResponseEntity.ok(response);
+    }
+}
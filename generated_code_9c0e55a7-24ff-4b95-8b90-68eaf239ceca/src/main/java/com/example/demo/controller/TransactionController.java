@@ -1,8 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.TransactionBatchItemResultDTO;
 import com.example.demo.dto.TransactionCreateDTO;
 import com.example.demo.dto.TransactionDTO;
 import com.example.demo.dto.TransactionListDTO;
+import com.example.demo.service.IdempotencyKeyStore;
 import com.example.demo.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +15,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -24,20 +28,27 @@ import java.util.Map;
 @Slf4j
 public class TransactionController {
     
+    static final String IDEMPOTENT_REPLAY_HEADER = "Idempotent-Replay";
+    static final int DEFAULT_CARD_PAGE_SIZE = 10;
+    
     private final TransactionService transactionService;
     
     /**
-     * Get a transaction by ID
+     * Get a transaction by ID; answers 304 to If-None-Match or If-Modified-Since while the transaction is unchanged
      */
     @GetMapping("/{transactionId}")
-    public ResponseEntity<Map<String, Object>> getTransaction(@PathVariable String transactionId) {
+    public ResponseEntity<Map<String, Object>> getTransaction(@PathVariable String transactionId, WebRequest webRequest) {
         log.info("GET /api/transactions/{}", transactionId);
         try {
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, transactionService.getTransactionVersion(transactionId));
+            if (notModified != null) {
+                return notModified;
+            }
             TransactionDTO transaction = transactionService.getTransactionById(transactionId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", transaction);
-            return ResponseEntity.ok(response);
+            return ConditionalGets.ok(response);
         } catch (RuntimeException e) {
             log.error("Error fetching transaction: {}", e.getMessage());
             Map<String, Object> response = new HashMap<>();
@@ -48,12 +59,18 @@ public class TransactionController {
     }
     
     /**
-     * List transactions with pagination
+     * List transactions with pagination; passing a cursor (empty for the first page)
+     * switches to keyset pagination
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> listTransactions(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        if (cursor != null) {
+            return listTransactionsByCursor(cursor, size, includeTotal);
+        }
         log.info("GET /api/transactions?page={}&size={}", page, size);
         try {
             Page<TransactionListDTO> transactions = transactionService.listTransactions(page, size);
@@ -73,18 +90,39 @@ public class TransactionController {
         }
     }
     
+    private ResponseEntity<Map<String, Object>> listTransactionsByCursor(String cursor, int size, boolean includeTotal) {
+        log.info("GET /api/transactions?cursor={}&size={}", cursor, size);
+        try {
+            CursorPageDTO<TransactionListDTO> transactions = transactionService.listTransactions(cursor, size, includeTotal);
+            return ResponseEntity.ok(cursorPageResponse(transactions));
+        } catch (RuntimeException e) {
+            log.error("Error listing transactions: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
     /**
-     * Create a new transaction
+     * Create a new transaction; a request repeating the Idempotency-Key of an earlier one gets
+     * the transaction that request posted, with 200 and Idempotent-Replay: true instead of 201
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createTransaction(@Valid @RequestBody TransactionCreateDTO createDTO) {
+    public ResponseEntity<Map<String, Object>> createTransaction(@Valid @RequestBody TransactionCreateDTO createDTO,
+                                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("POST /api/transactions");
         try {
-            TransactionDTO transaction = transactionService.createTransaction(createDTO);
+            IdempotencyKeyStore.Outcome outcome = transactionService.createTransaction(createDTO, idempotencyKey);
+            TransactionDTO transaction = outcome.transaction();
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Transaction created successfully with ID: " + transaction.getTransactionId());
             response.put("data", transaction);
+            if (outcome.replayed()) {
+                response.put("message", "Transaction already created with ID: " + transaction.getTransactionId());
+                return ResponseEntity.ok().header(IDEMPOTENT_REPLAY_HEADER, "true").body(response);
+            }
+            response.put("message", "Transaction created successfully with ID: " + transaction.getTransactionId());
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (RuntimeException e) {
             log.error("Error creating transaction: {}", e.getMessage());
@@ -95,6 +133,33 @@ public class TransactionController {
         }
     }
     
+    /**
+     * Create transactions in bulk; each item is accepted or rejected on its own
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> createTransactions(@RequestBody List<TransactionCreateDTO> createDTOs) {
+        log.info("POST /api/transactions/batch - {} items", createDTOs.size());
+        try {
+            List<TransactionBatchItemResultDTO> results = transactionService.createTransactions(createDTOs);
+            long accepted = results.stream()
+                    .filter(result -> TransactionBatchItemResultDTO.ACCEPTED.equals(result.getStatus()))
+                    .count();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", accepted + " of " + results.size() + " transactions created successfully");
+            response.put("acceptedCount", accepted);
+            response.put("rejectedCount", results.size() - accepted);
+            response.put("data", results);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error creating transaction batch: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
     /**
      * Get transactions by date range
      */
@@ -120,24 +185,75 @@ public class TransactionController {
     }
     
     /**
-     * Get transactions by card number
+     * Get transactions by card number, one page of size (default 10) at a time; limit returns
+     * only the newest transactions, with a nextCursor for the older history. A cursor or a
+     * startDate/endDate window returns one page of the history within the window. All forms are
+     * conditional on the version of the card's account, which every posting to the card changes.
      */
     @GetMapping("/card/{cardNumber}")
-    public ResponseEntity<Map<String, Object>> getTransactionsByCardNumber(@PathVariable String cardNumber) {
-        log.info("GET /api/transactions/card/{}", cardNumber);
+    public ResponseEntity<Map<String, Object>> getTransactionsByCardNumber(
+            @PathVariable String cardNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        // The whole history is never read at once: without a limit every form is a cursor page
+        if (limit != null && cursor == null && startDate == null && endDate == null && size == null) {
+            return getRecentTransactionsByCardNumber(cardNumber, limit, webRequest);
+        }
+        return getTransactionsByCardNumberByCursor(cardNumber, startDate, endDate, cursor,
+                size == null ? DEFAULT_CARD_PAGE_SIZE : size, webRequest);
+    }
+    
+    private ResponseEntity<Map<String, Object>> getRecentTransactionsByCardNumber(String cardNumber, int limit, WebRequest webRequest) {
+        log.info("GET /api/transactions/card/{}?limit={}", cardNumber, limit);
         try {
-            List<TransactionDTO> transactions = transactionService.getTransactionsByCardNumber(cardNumber);
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, transactionService.getCardHistoryVersion(cardNumber));
+            if (notModified != null) {
+                return notModified;
+            }
+            CursorPageDTO<TransactionDTO> transactions = transactionService.getRecentTransactionsByCardNumber(cardNumber, limit);
+            return ConditionalGets.ok(cursorPageResponse(transactions));
+        } catch (RuntimeException e) {
+            log.error("Error fetching recent transactions by card number: {}", e.getMessage());
             Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", transactions);
-            response.put("count", transactions.size());
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    private ResponseEntity<Map<String, Object>> getTransactionsByCardNumberByCursor(String cardNumber, LocalDate startDate, LocalDate endDate,
+                                                                                    String cursor, int size, WebRequest webRequest) {
+        log.info("GET /api/transactions/card/{}?startDate={}&endDate={}&cursor={}&size={}", cardNumber, startDate, endDate, cursor, size);
+        try {
+            ResponseEntity<Map<String, Object>> notModified = ConditionalGets.notModified(webRequest, transactionService.getCardHistoryVersion(cardNumber));
+            if (notModified != null) {
+                return notModified;
+            }
+            CursorPageDTO<TransactionDTO> transactions = transactionService.getTransactionsByCardNumber(cardNumber, startDate, endDate, cursor, size);
+            return ConditionalGets.ok(cursorPageResponse(transactions));
+        } catch (RuntimeException e) {
             log.error("Error fetching transactions by card number: {}", e.getMessage());
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
             response.put("error", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    static Map<String, Object> cursorPageResponse(CursorPageDTO<?> page) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", page.getContent());
+        response.put("count", page.getContent().size());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("prevCursor", page.getPrevCursor());
+        if (page.getTotalItems() != null) {
+            response.put("totalItems", page.getTotalItems());
         }
+        return response;
     }
 }
@@ -0,0 +1,67 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.TransactionImportDTO;
+import com.example.demo.service.DailyTransactionImporter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/imports/daily-transactions")
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionImportController {
+    
+    private final DailyTransactionImporter dailyTransactionImporter;
+    
+    /**
+     * Start importing a daily transaction file of the inbound directory in the background, or
+     * resume an interrupted import of the same file; poll the status endpoint for progress
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startImport(@RequestParam String fileName,
+                                                           @RequestParam(required = false) Long offset) {
+        log.info("POST /api/imports/daily-transactions?fileName={}&offset={}", fileName, offset);
+        try {
+            TransactionImportDTO status = dailyTransactionImporter.start(fileName, offset);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", status);
+            boolean started = DailyTransactionImporter.STATUS_RUNNING.equals(status.getStatus());
+            response.put("message", started ? "Import started" : "File is already imported");
+            return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.OK).body(response);
+        } catch (RuntimeException e) {
+            log.error("Error starting import: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+    
+    /**
+     * Get the progress and record counts of the import of a file
+     */
+    @GetMapping("/{fileName}")
+    public ResponseEntity<Map<String, Object>> getImportStatus(@PathVariable String fileName) {
+        log.info("GET /api/imports/daily-transactions/{}", fileName);
+        try {
+            TransactionImportDTO status = dailyTransactionImporter.getStatus(fileName);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", status);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error fetching import status: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.TransactionAggregateDTO;
 import com.example.demo.dto.TransactionReportRequestDTO;
+import com.example.demo.dto.TransactionSummaryDTO;
 import com.example.demo.entity.Transaction;
+import com.example.demo.service.TransactionAnalyticsEngine;
 import com.example.demo.service.TransactionReportService;
+import com.example.demo.service.TransactionReportService.AggregateReport;
+import com.example.demo.service.TransactionReportService.ReportWindow;
+import com.example.demo.service.TransactionReportService.StreamFormat;
+import com.example.demo.service.TransactionRollupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +34,9 @@ import java.util.Map;
 public class TransactionReportController {
     
     private final TransactionReportService reportService;
+    private final TransactionRollupService rollupService;
+    private final TransactionAnalyticsEngine analyticsEngine;
+    private final ObjectMapper objectMapper;
     
     /**
      * Generate transaction report
@@ -53,4 +69,169 @@ public class TransactionReportController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
     }
+    
+    /**
+     * Stream transaction report as NDJSON or CSV without materializing it in memory
+     */
+    @PostMapping("/transactions/stream")
+    public ResponseEntity<StreamingResponseBody> streamTransactionReport(
+            @Valid @RequestBody TransactionReportRequestDTO request,
+            @RequestParam(defaultValue = "NDJSON") String format) {
+        log.info("POST /api/reports/transactions/stream - type: {}, format: {}", request.getReportType(), format);
+        try {
+            // Validate before the response is committed so errors still get a proper status
+            StreamFormat streamFormat = StreamFormat.from(format);
+            ReportWindow window = reportService.resolveReportWindow(request);
+            
+            StreamingResponseBody body = outputStream -> reportService.writeReport(window, streamFormat, outputStream);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(streamFormat.getMediaType()))
+                    .header("Content-Disposition", "attachment; filename=\"transactions-" + window.startDate()
+                            + "-" + window.endDate() + "." + streamFormat.name().toLowerCase() + "\"")
+                    .body(body);
+        } catch (RuntimeException e) {
+            log.error("Error streaming report: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(outputStream -> objectMapper.writeValue(outputStream, response));
+        }
+    }
+    
+    /**
+     * Generate summary report (totals by type and category) from the daily rollup
+     */
+    @PostMapping("/transactions/summary")
+    public ResponseEntity<Map<String, Object>> generateSummaryReport(
+            @Valid @RequestBody TransactionReportRequestDTO request) {
+        log.info("POST /api/reports/transactions/summary - type: {}", request.getReportType());
+        try {
+            List<TransactionSummaryDTO> summary = reportService.generateSummaryReport(request);
+            
+            long transactionCount = 0;
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            for (TransactionSummaryDTO row : summary) {
+                transactionCount += row.getTransactionCount();
+                totalAmount = totalAmount.add(row.getTotalAmount());
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", request.getReportType() + " summary report generated successfully");
+            response.put("reportType", request.getReportType());
+            response.put("transactionCount", transactionCount);
+            response.put("totalAmount", totalAmount);
+            response.put("data", summary);
+            
+            if ("CUSTOM".equals(request.getReportType())) {
+                response.put("startDate", request.getStartDate());
+                response.put("endDate", request.getEndDate());
+            }
+            
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error generating summary report: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Generate aggregate report: totals grouped by TYPE_CATEGORY, MERCHANT, ACCOUNT or DAY
+     * instead of one row per transaction
+     */
+    @PostMapping("/transactions/aggregate")
+    public ResponseEntity<Map<String, Object>> generateAggregateReport(
+            @Valid @RequestBody TransactionReportRequestDTO request) {
+        log.info("POST /api/reports/transactions/aggregate - type: {}, groupBy: {}", request.getReportType(), request.getGroupBy());
+        try {
+            AggregateReport report = reportService.generateAggregateReport(request);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", request.getReportType() + " " + report.groupBy() + " aggregate report generated successfully");
+            response.put("reportType", request.getReportType());
+            response.put("groupBy", report.groupBy());
+            response.put("transactionCount", report.transactionCount());
+            response.put("totalAmount", report.totalAmount());
+            response.put("data", report.rows());
+            
+            if ("CUSTOM".equals(request.getReportType())) {
+                response.put("startDate", request.getStartDate());
+                response.put("endDate", request.getEndDate());
+            }
+            
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error generating aggregate report: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Transaction count, total and average amount grouped by DAY, TYPE, CATEGORY, MERCHANT or
+     * ACCOUNT, answered from the in-memory analytics engine
+     *
+     * @param limit Return at most this many groups; merchants and accounts come largest total first
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<Map<String, Object>> getTransactionAnalytics(
+            @RequestParam String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long accountId,
+            @RequestParam(required = false) String typeCode,
+            @RequestParam(required = false) Integer limit) {
+        log.info("GET /api/reports/analytics - groupBy: {}, from {} to {}", groupBy, startDate, endDate);
+        try {
+            List<TransactionAggregateDTO> groups = analyticsEngine.aggregate(groupBy, startDate, endDate, accountId, typeCode, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("groupBy", groupBy.toUpperCase());
+            response.put("count", groups.size());
+            response.put("data", groups);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error aggregating transactions: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
+    /**
+     * Rebuild the daily rollup of a date range from the posted transactions
+     */
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("POST /api/reports/rollup/rebuild - from {} to {}", startDate, endDate);
+        try {
+            int rows = rollupService.rebuild(startDate, endDate);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Daily rollup rebuilt successfully");
+            response.put("rollupRows", rows);
+            response.put("startDate", startDate);
+            response.put("endDate", endDate);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Error rebuilding daily rollup: {}", e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
 }
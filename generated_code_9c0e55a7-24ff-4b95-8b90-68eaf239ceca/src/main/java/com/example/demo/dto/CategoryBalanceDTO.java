@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryBalanceDTO {
+    
+    private Long accountId;
+    
+    private String typeCode;
+    
+    private Integer categoryCode;
+    
+    private String categoryDescription;
+    
+    private BigDecimal balance;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleClosePartitionDTO {
+    
+    private Integer partitionIndex;
+    
+    private Long firstAccountId;
+    
+    private Long lastAccountId;
+    
+    private Long nextAccountId;
+    
+    private Long accountsClosed;
+    
+    private String status;
+    
+    private String errorMessage;
+}
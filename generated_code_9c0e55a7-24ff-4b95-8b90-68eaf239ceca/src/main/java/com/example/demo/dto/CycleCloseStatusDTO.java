@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleCloseStatusDTO {
+    
+    private LocalDate cycleEndDate;
+    
+    // RUNNING while this instance works on the cycle, otherwise COMPLETED, FAILED or PENDING
+    private String status;
+    
+    private Long accountsClosed;
+    
+    private Integer partitionsCompleted;
+    
+    private List<CycleClosePartitionDTO> partitions;
+}
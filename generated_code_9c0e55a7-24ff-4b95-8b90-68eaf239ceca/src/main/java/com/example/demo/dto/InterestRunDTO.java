@@ -0,0 +1,27 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestRunDTO {
+    
+    private LocalDate runDate;
+    
+    private String status;
+    
+    private Long balanceRows;
+    
+    private Long accountsCharged;
+    
+    // Accounts whose interest posting was rejected by the posting rules or had no card
+    private Long accountsRejected;
+    
+    private BigDecimal totalInterest;
+}
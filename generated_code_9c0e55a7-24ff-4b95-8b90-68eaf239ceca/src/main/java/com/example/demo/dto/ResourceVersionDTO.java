@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Validators of a resource for conditional GETs: a version watermark that changes with every
+ * change to the resource, and the time of the last change
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceVersionDTO {
+    
+    private Long version;
+    
+    private LocalDateTime lastModified;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAccountSummaryDTO {
+    
+    private Long accountId;
+    
+    private Long transactionCount;
+    
+    private BigDecimal totalAmount;
+}
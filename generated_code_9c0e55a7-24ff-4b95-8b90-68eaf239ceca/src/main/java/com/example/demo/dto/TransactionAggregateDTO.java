@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAggregateDTO {
+    
+    // The group: a date (DAY), type code (TYPE), type/category (CATEGORY), merchant ID or account ID
+    private String key;
+    
+    // Type or category description, or merchant name; null when grouped by day or account
+    private String description;
+    
+    private Long transactionCount;
+    
+    private BigDecimal totalAmount;
+    
+    private BigDecimal averageAmount;
+}
@@ -0,0 +1,36 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionArchiveDTO {
+    
+    // IDLE (no run since startup), RUNNING, COMPLETED or FAILED
+    private String status;
+    
+    // Transactions with an earlier originalTimestamp are archived by the latest run
+    private LocalDateTime cutoff;
+    
+    private Integer segmentCount;
+    
+    private Long archivedTransactions;
+    
+    private Long archiveBytes;
+    
+    // Progress of the latest run
+    private Long runTransactions;
+    
+    private Integer runSegments;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime finishedAt;
+    
+    private String errorMessage;
+}
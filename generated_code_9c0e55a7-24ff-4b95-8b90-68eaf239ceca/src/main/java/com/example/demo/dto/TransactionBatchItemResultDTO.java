@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchItemResultDTO {
+    
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String REJECTED = "REJECTED";
+    
+    private int index;
+    
+    private String status;
+    
+    private String transactionId;
+    
+    private String reason;
+    
+    private String error;
+    
+    public static TransactionBatchItemResultDTO accepted(int index, String transactionId) {
+        return new TransactionBatchItemResultDTO(index, ACCEPTED, transactionId, null, null);
+    }
+    
+    /**
+     * @param reason Machine-readable rejection reason, as tagged on the transactions.posting.rejections meter
+     */
+    public static TransactionBatchItemResultDTO rejected(int index, String reason, String error) {
+        return new TransactionBatchItemResultDTO(index, REJECTED, null, reason, error);
+    }
+}
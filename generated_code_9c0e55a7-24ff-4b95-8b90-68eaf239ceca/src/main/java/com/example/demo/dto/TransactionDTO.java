@@ -30,11 +30,15 @@ public class TransactionDTO {
     @Size(max = 2, message = "Type code must not exceed 2 characters")
     private String typeCode;
     
+    private String typeDescription;
+    
     @NotNull(message = "Category code is required")
     @Min(value = 0, message = "Category code must be positive")
     @Max(value = 9999, message = "Category code must not exceed 9999")
     private Integer categoryCode;
     
+    private String categoryDescription;
+    
     @NotBlank(message = "Source is required")
     @Size(max = 10, message = "Source must not exceed 10 characters")
     private String source;
@@ -69,4 +73,27 @@ public class TransactionDTO {
     @NotNull(message = "Processed timestamp is required")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime processedTimestamp;
+    
+    /**
+     * Constructor-expression target of TransactionRepository.DETAIL; descriptions are filled in afterwards
+     */
+    public TransactionDTO(String transactionId, String cardNumber, Long accountId, String typeCode, Integer categoryCode,
+                          String source, String description, BigDecimal amount, Long merchantId, String merchantName,
+                          String merchantCity, String merchantZip, LocalDateTime originalTimestamp,
+                          LocalDateTime processedTimestamp) {
+        this.transactionId = transactionId;
+        this.cardNumber = cardNumber;
+        this.accountId = accountId;
+        this.typeCode = typeCode;
+        this.categoryCode = categoryCode;
+        this.source = source;
+        this.description = description;
+        this.amount = amount;
+        this.merchantId = merchantId;
+        this.merchantName = merchantName;
+        this.merchantCity = merchantCity;
+        this.merchantZip = merchantZip;
+        this.originalTimestamp = originalTimestamp;
+        this.processedTimestamp = processedTimestamp;
+    }
 }
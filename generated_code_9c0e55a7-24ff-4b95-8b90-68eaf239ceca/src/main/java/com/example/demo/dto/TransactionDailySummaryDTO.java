@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionDailySummaryDTO {
+    
+    private LocalDate date;
+    
+    private Long transactionCount;
+    
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionImportDTO {
+    
+    private String fileName;
+    
+    // RUNNING, COMPLETED, STOPPED (by a shutdown, resumed by the next start) or FAILED
+    private String status;
+    
+    private Long fileSize;
+    
+    // Bytes of the file already imported; a restarted import resumes here
+    private Long byteOffset;
+    
+    private Long recordsRead;
+    
+    private Long recordsPosted;
+    
+    private Long recordsRejected;
+    
+    // Records whose transaction ID was already posted, by an earlier run of the file
+    private Long recordsSkipped;
+    
+    // Throughput of the latest run
+    private Double recordsPerSecond;
+    
+    private String errorMessage;
+}
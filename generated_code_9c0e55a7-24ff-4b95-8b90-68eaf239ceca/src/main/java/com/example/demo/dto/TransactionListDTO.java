@@ -1,6 +1,7 @@
 package com.example.demo.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -21,4 +22,28 @@ public class TransactionListDTO {
     private String description;
     
     private BigDecimal amount;
+    
+    private String typeDescription;
+    
+    private String categoryDescription;
+    
+    // Codes the descriptions are resolved from; selected by the projection query, not serialized
+    @JsonIgnore
+    private String typeCode;
+    
+    @JsonIgnore
+    private Integer categoryCode;
+    
+    /**
+     * Constructor-expression target of TransactionRepository.LIST_ITEM; descriptions are filled in afterwards
+     */
+    public TransactionListDTO(String transactionId, LocalDateTime transactionDate, String description,
+                              BigDecimal amount, String typeCode, Integer categoryCode) {
+        this.transactionId = transactionId;
+        this.transactionDate = transactionDate;
+        this.description = description;
+        this.amount = amount;
+        this.typeCode = typeCode;
+        this.categoryCode = categoryCode;
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionMerchantSummaryDTO {
+    
+    private Long merchantId;
+    
+    private String merchantName;
+    
+    private Long transactionCount;
+    
+    private BigDecimal totalAmount;
+}
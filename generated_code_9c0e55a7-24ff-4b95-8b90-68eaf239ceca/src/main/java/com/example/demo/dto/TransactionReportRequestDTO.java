@@ -23,6 +23,10 @@ public class TransactionReportRequestDTO {
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate endDate;
     
+    // Aggregate reports only: the grouping of the totals
+    @Pattern(regexp = "^(TYPE_CATEGORY|MERCHANT|ACCOUNT|DAY)$", message = "Group by must be TYPE_CATEGORY, MERCHANT, ACCOUNT, or DAY")
+    private String groupBy;
+    
     @NotBlank(message = "Confirmation is required")
     @Pattern(regexp = "^[YyNn]$", message = "Confirmation must be Y or N")
     private String confirmation;
@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSummaryDTO {
+    
+    private String typeCode;
+    
+    private String typeDescription;
+    
+    private Integer categoryCode;
+    
+    private String categoryDescription;
+    
+    private Long transactionCount;
+    
+    private BigDecimal totalAmount;
+    
+    /**
+     * Used by the JPQL constructor expression; descriptions are filled in from the reference data
+     */
+    public TransactionSummaryDTO(String typeCode, Integer categoryCode, Long transactionCount, BigDecimal totalAmount) {
+        this.typeCode = typeCode;
+        this.categoryCode = categoryCode;
+        this.transactionCount = transactionCount;
+        this.totalAmount = totalAmount;
+    }
+}
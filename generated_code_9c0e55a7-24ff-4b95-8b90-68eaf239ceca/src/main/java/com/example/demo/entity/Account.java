@@ -49,6 +49,10 @@ public class Account {
     @Column(name = "current_cycle_debit", nullable = false, precision = 19, scale = 2)
     private BigDecimal currentCycleDebit;
     
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
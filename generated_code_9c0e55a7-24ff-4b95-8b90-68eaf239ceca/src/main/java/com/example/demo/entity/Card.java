@@ -1,5 +1,6 @@
 package com.example.demo.entity;
 
+import com.example.demo.service.CardRoutingCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "cards")
+@EntityListeners(CardRoutingCacheInvalidator.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -1,11 +1,13 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -15,7 +17,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Transaction {
+public class Transaction implements Persistable<String> {
     
     @Id
     @Column(name = "transaction_id", nullable = false, length = 16)
@@ -67,4 +69,20 @@ public class Transaction {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+    
+    /**
+     * Transaction IDs are assigned before saving, so newness is tracked through the creation
+     * timestamp; this lets save/saveAll persist directly instead of merging (SELECT then INSERT)
+     */
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return transactionId;
+    }
+    
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return createdAt == null;
+    }
 }
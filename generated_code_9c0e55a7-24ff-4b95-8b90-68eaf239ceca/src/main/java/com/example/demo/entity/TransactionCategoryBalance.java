@@ -34,6 +34,10 @@ public class TransactionCategoryBalance {
     @Column(name = "balance", nullable = false, precision = 19, scale = 2)
     private BigDecimal balance;
     
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
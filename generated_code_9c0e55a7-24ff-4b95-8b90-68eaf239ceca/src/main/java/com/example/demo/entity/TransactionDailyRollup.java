@@ -0,0 +1,62 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transaction_daily_rollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(TransactionDailyRollup.TransactionDailyRollupId.class)
+public class TransactionDailyRollup {
+    
+    @Id
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+    
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+    
+    @Id
+    @Column(name = "type_code", nullable = false, length = 2)
+    private String typeCode;
+    
+    @Id
+    @Column(name = "category_code", nullable = false)
+    private Integer categoryCode;
+    
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+    
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TransactionDailyRollupId implements Serializable {
+        private LocalDate rollupDate;
+        private Long accountId;
+        private String typeCode;
+        private Integer categoryCode;
+    }
+}
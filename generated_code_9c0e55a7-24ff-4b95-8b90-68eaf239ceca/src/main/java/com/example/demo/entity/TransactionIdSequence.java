@@ -0,0 +1,33 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transaction_id_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionIdSequence {
+    
+    @Id
+    @Column(name = "sequence_name", nullable = false, length = 50)
+    private String sequenceName;
+    
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,10 +1,15 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.AccountDTO;
+import com.example.demo.dto.ResourceVersionDTO;
 import com.example.demo.entity.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
@@ -12,4 +17,29 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     List<Account> findByCustomerId(Long customerId);
     
     List<Account> findByActiveStatus(String activeStatus);
+    
+    // Read-only views select straight into AccountDTO instead of hydrating managed entities
+    
+    String DETAIL = "SELECT new com.example.demo.dto.AccountDTO(a.accountId, a.customerId, a.activeStatus, " +
+            "a.currentBalance, a.creditLimit, a.cashCreditLimit, a.openDate, a.expirationDate, " +
+            "a.currentCycleCredit, a.currentCycleDebit) FROM Account a ";
+    
+    @Query(DETAIL + "WHERE a.accountId = :accountId")
+    Optional<AccountDTO> findDetailById(@Param("accountId") Long accountId);
+    
+    @Query(DETAIL + "WHERE a.customerId = :customerId")
+    List<AccountDTO> findDetailsByCustomerId(@Param("customerId") Long customerId);
+    
+    @Query(DETAIL)
+    List<AccountDTO> findAllDetails();
+    
+    // Validators for conditional GETs, read without the account itself
+    
+    @Query("SELECT new com.example.demo.dto.ResourceVersionDTO(a.version, a.updatedAt) FROM Account a WHERE a.accountId = :accountId")
+    Optional<ResourceVersionDTO> findVersionById(@Param("accountId") Long accountId);
+    
+    // Versions only grow and accounts are never deleted, so the sum moves with every change and the count with every new account
+    @Query("SELECT new com.example.demo.dto.ResourceVersionDTO(SUM(a.version) + COUNT(a), MAX(a.updatedAt)) " +
+            "FROM Account a WHERE a.customerId = :customerId")
+    ResourceVersionDTO findVersionByCustomerId(@Param("customerId") Long customerId);
 }
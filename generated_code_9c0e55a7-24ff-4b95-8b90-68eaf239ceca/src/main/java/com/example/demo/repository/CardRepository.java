@@ -2,8 +2,11 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +15,10 @@ public interface CardRepository extends JpaRepository<Card, String> {
     List<Card> findByAccountId(Long accountId);
     
     List<Card> findByCustomerId(Long customerId);
+    
+    /**
+     * @return [accountId, cardNumber] pairs with the lowest card number of each account, for system postings
+     */
+    @Query("SELECT c.accountId, MIN(c.cardNumber) FROM Card c WHERE c.accountId IN :accountIds GROUP BY c.accountId")
+    List<Object[]> findPrimaryCardNumbers(@Param("accountIds") Collection<Long> accountIds);
 }
@@ -4,10 +4,13 @@ import com.example.demo.entity.TransactionCategoryBalance;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionCategoryBalanceRepository extends JpaRepository<TransactionCategoryBalance, TransactionCategoryBalance.TransactionCategoryBalanceId> {
     
     List<TransactionCategoryBalance> findByAccountId(Long accountId);
+    
+    List<TransactionCategoryBalance> findByAccountIdIn(Collection<Long> accountIds);
 }
@@ -0,0 +1,75 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.TransactionAccountSummaryDTO;
+import com.example.demo.dto.TransactionDailySummaryDTO;
+import com.example.demo.dto.TransactionSummaryDTO;
+import com.example.demo.entity.TransactionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TransactionDailyRollupRepository extends JpaRepository<TransactionDailyRollup, TransactionDailyRollup.TransactionDailyRollupId> {
+    
+    @Modifying
+    @Query("UPDATE TransactionDailyRollup r SET r.transactionCount = r.transactionCount + :count, " +
+           "r.totalAmount = r.totalAmount + :amount, r.updatedAt = :updatedAt " +
+           "WHERE r.rollupDate = :rollupDate AND r.accountId = :accountId " +
+           "AND r.typeCode = :typeCode AND r.categoryCode = :categoryCode")
+    int increment(@Param("rollupDate") LocalDate rollupDate,
+                  @Param("accountId") Long accountId,
+                  @Param("typeCode") String typeCode,
+                  @Param("categoryCode") Integer categoryCode,
+                  @Param("count") long count,
+                  @Param("amount") BigDecimal amount,
+                  @Param("updatedAt") LocalDateTime updatedAt);
+                  
+    @Modifying
+    @Query(value = "INSERT INTO transaction_daily_rollup (rollup_date, account_id, type_code, category_code, " +
+                   "transaction_count, total_amount) VALUES (:rollupDate, :accountId, :typeCode, :categoryCode, :count, :amount)",
+           nativeQuery = true)
+    int insert(@Param("rollupDate") LocalDate rollupDate,
+               @Param("accountId") Long accountId,
+               @Param("typeCode") String typeCode,
+               @Param("categoryCode") Integer categoryCode,
+               @Param("count") long count,
+               @Param("amount") BigDecimal amount);
+               
+    @Modifying
+    @Query("DELETE FROM TransactionDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate")
+    int deleteByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    @Modifying
+    @Query(value = "INSERT INTO transaction_daily_rollup (rollup_date, account_id, type_code, category_code, " +
+                   "transaction_count, total_amount) " +
+                   "SELECT CAST(original_timestamp AS DATE), account_id, type_code, category_code, COUNT(*), SUM(amount) " +
+                   "FROM transactions WHERE original_timestamp >= :startDateTime AND original_timestamp < :endDateTime " +
+                   "GROUP BY CAST(original_timestamp AS DATE), account_id, type_code, category_code",
+           nativeQuery = true)
+    int rebuild(@Param("startDateTime") LocalDateTime startDateTime, @Param("endDateTime") LocalDateTime endDateTime);
+    
+    @Query("SELECT new com.example.demo.dto.TransactionSummaryDTO(r.typeCode, r.categoryCode, " +
+           "SUM(r.transactionCount), SUM(r.totalAmount)) " +
+           "FROM TransactionDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.typeCode, r.categoryCode ORDER BY r.typeCode, r.categoryCode")
+    List<TransactionSummaryDTO> summarizeByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT new com.example.demo.dto.TransactionAccountSummaryDTO(r.accountId, " +
+           "SUM(r.transactionCount), SUM(r.totalAmount)) " +
+           "FROM TransactionDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.accountId ORDER BY r.accountId")
+    List<TransactionAccountSummaryDTO> summarizeByAccount(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT new com.example.demo.dto.TransactionDailySummaryDTO(r.rollupDate, " +
+           "SUM(r.transactionCount), SUM(r.totalAmount)) " +
+           "FROM TransactionDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<TransactionDailySummaryDTO> summarizeByDay(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,22 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.TransactionIdSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface TransactionIdSequenceRepository extends JpaRepository<TransactionIdSequence, String> {
+    
+    @Modifying
+    @Query("UPDATE TransactionIdSequence s SET s.nextValue = s.nextValue + :blockSize, s.updatedAt = :updatedAt WHERE s.sequenceName = :sequenceName")
+    int advance(@Param("sequenceName") String sequenceName, @Param("blockSize") long blockSize, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Query("SELECT s.nextValue FROM TransactionIdSequence s WHERE s.sequenceName = :sequenceName")
+    Optional<Long> findNextValue(@Param("sequenceName") String sequenceName);
+}
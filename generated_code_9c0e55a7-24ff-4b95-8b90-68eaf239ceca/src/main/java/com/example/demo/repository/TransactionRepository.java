@@ -1,15 +1,26 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ResourceVersionDTO;
+import com.example.demo.dto.TransactionDTO;
+import com.example.demo.dto.TransactionListDTO;
+import com.example.demo.dto.TransactionMerchantSummaryDTO;
 import com.example.demo.entity.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
@@ -20,12 +31,96 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
     
     List<Transaction> findByAccountIdOrderByOriginalTimestampDesc(Long accountId);
     
-    @Query("SELECT t FROM Transaction t WHERE t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate ORDER BY t.originalTimestamp DESC")
+    // Read paths select straight into DTOs with JPQL constructor expressions, so no managed
+    // entities or dirty-checking snapshots are created for rows that are only serialized
+    
+    String LIST_ITEM = "SELECT new com.example.demo.dto.TransactionListDTO(t.transactionId, t.originalTimestamp, " +
+            "t.description, t.amount, t.typeCode, t.categoryCode) FROM Transaction t ";
+    
+    String DETAIL = "SELECT new com.example.demo.dto.TransactionDTO(t.transactionId, t.cardNumber, t.accountId, " +
+            "t.typeCode, t.categoryCode, t.source, t.description, t.amount, t.merchantId, t.merchantName, " +
+            "t.merchantCity, t.merchantZip, t.originalTimestamp, t.processedTimestamp) FROM Transaction t ";
+    
+    // Keyset (seek) pagination over (original_timestamp, transaction_id); callers pass an unsorted
+    // PageRequest.of(0, n) only to limit the rows, so no OFFSET scan or COUNT query is issued
+    
+    String OLDER_THAN = "(t.originalTimestamp < :timestamp OR (t.originalTimestamp = :timestamp AND t.transactionId < :transactionId)) ";
+    
+    String NEWER_THAN = "(t.originalTimestamp > :timestamp OR (t.originalTimestamp = :timestamp AND t.transactionId > :transactionId)) ";
+    
+    String NEWEST_FIRST = "ORDER BY t.originalTimestamp DESC, t.transactionId DESC";
+    
+    String OLDEST_FIRST = "ORDER BY t.originalTimestamp ASC, t.transactionId ASC";
+    
+    // Half-open time window [from, until) of the card and account histories; with the composite
+    // card/account + original_timestamp indexes the window and the seek are one range scan
+    String WINDOW = "t.originalTimestamp >= :from AND t.originalTimestamp < :until ";
+    
+    @Query(DETAIL + "WHERE t.transactionId = :transactionId")
+    Optional<TransactionDTO> findDetailById(@Param("transactionId") String transactionId);
+    
+    // Posted transactions are never updated, so their version is constant
+    @Query("SELECT new com.example.demo.dto.ResourceVersionDTO(0L, t.updatedAt) FROM Transaction t WHERE t.transactionId = :transactionId")
+    Optional<ResourceVersionDTO> findVersionById(@Param("transactionId") String transactionId);
+    
+    @Query(value = LIST_ITEM + NEWEST_FIRST, countQuery = "SELECT COUNT(t) FROM Transaction t")
+    Page<TransactionListDTO> findListItems(Pageable pageable);
+    
+    @Query(LIST_ITEM + NEWEST_FIRST)
+    List<TransactionListDTO> findNewestListItems(Pageable pageable);
+    
+    @Query(LIST_ITEM + "WHERE " + OLDER_THAN + NEWEST_FIRST)
+    List<TransactionListDTO> findListItemsOlderThan(@Param("timestamp") LocalDateTime timestamp, @Param("transactionId") String transactionId, Pageable pageable);
+    
+    @Query(LIST_ITEM + "WHERE " + NEWER_THAN + OLDEST_FIRST)
+    List<TransactionListDTO> findListItemsNewerThan(@Param("timestamp") LocalDateTime timestamp, @Param("transactionId") String transactionId, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.cardNumber = :cardNumber " + NEWEST_FIRST)
+    List<TransactionDTO> findNewestDetailsByCardNumber(@Param("cardNumber") String cardNumber, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.cardNumber = :cardNumber AND " + WINDOW + NEWEST_FIRST)
+    List<TransactionDTO> findNewestDetailsByCardNumberAndDateRange(@Param("cardNumber") String cardNumber, @Param("from") LocalDateTime from, @Param("until") LocalDateTime until, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.cardNumber = :cardNumber AND " + WINDOW + "AND " + OLDER_THAN + NEWEST_FIRST)
+    List<TransactionDTO> findDetailsByCardNumberAndDateRangeOlderThan(@Param("cardNumber") String cardNumber, @Param("from") LocalDateTime from, @Param("until") LocalDateTime until, @Param("timestamp") LocalDateTime timestamp, @Param("transactionId") String transactionId, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.cardNumber = :cardNumber AND " + WINDOW + "AND " + NEWER_THAN + OLDEST_FIRST)
+    List<TransactionDTO> findDetailsByCardNumberAndDateRangeNewerThan(@Param("cardNumber") String cardNumber, @Param("from") LocalDateTime from, @Param("until") LocalDateTime until, @Param("timestamp") LocalDateTime timestamp, @Param("transactionId") String transactionId, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.accountId = :accountId AND " + WINDOW + NEWEST_FIRST)
+    List<TransactionDTO> findNewestDetailsByAccountIdAndDateRange(@Param("accountId") Long accountId, @Param("from") LocalDateTime from, @Param("until") LocalDateTime until, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.accountId = :accountId AND " + WINDOW + "AND " + OLDER_THAN + NEWEST_FIRST)
+    List<TransactionDTO> findDetailsByAccountIdAndDateRangeOlderThan(@Param("accountId") Long accountId, @Param("from") LocalDateTime from, @Param("until") LocalDateTime until, @Param("timestamp") LocalDateTime timestamp, @Param("transactionId") String transactionId, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.accountId = :accountId AND " + WINDOW + "AND " + NEWER_THAN + OLDEST_FIRST)
+    List<TransactionDTO> findDetailsByAccountIdAndDateRangeNewerThan(@Param("accountId") Long accountId, @Param("from") LocalDateTime from, @Param("until") LocalDateTime until, @Param("timestamp") LocalDateTime timestamp, @Param("transactionId") String transactionId, Pageable pageable);
+    
+    @Query(DETAIL + "WHERE t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate " + NEWEST_FIRST)
+    List<TransactionDTO> findDetailsByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT t FROM Transaction t WHERE t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate " + NEWEST_FIRST)
     List<Transaction> findByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT t FROM Transaction t WHERE t.cardNumber = :cardNumber AND t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate ORDER BY t.originalTimestamp DESC")
-    List<Transaction> findByCardNumberAndDateRange(@Param("cardNumber") String cardNumber, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    /**
+     * Streams the transactions of a date range through a forward-only cursor; must be consumed
+     * inside a transaction and closed afterwards
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate " + NEWEST_FIRST)
+    Stream<Transaction> streamByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Merchants are not in the daily rollup, so their totals are grouped from the transactions themselves
+    @Query("SELECT new com.example.demo.dto.TransactionMerchantSummaryDTO(t.merchantId, MAX(t.merchantName), COUNT(t), SUM(t.amount)) " +
+           "FROM Transaction t WHERE t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate " +
+           "GROUP BY t.merchantId")
+    List<TransactionMerchantSummaryDTO> summarizeByMerchant(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT t FROM Transaction t WHERE t.accountId = :accountId AND t.originalTimestamp >= :startDate AND t.originalTimestamp <= :endDate ORDER BY t.originalTimestamp DESC")
-    List<Transaction> findByAccountIdAndDateRange(@Param("accountId") Long accountId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    // Dedupes imports and WAL replays against rows just written, so it must not run read-only on a replica
+    @Transactional
+    @Query("SELECT t.transactionId FROM Transaction t WHERE t.transactionId IN :transactionIds")
+    List<String> findExistingIds(@Param("transactionIds") Collection<String> transactionIds);
 }
@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes balance-changing work per account without a global lock.
+ * Accounts are hashed onto a fixed set of lock stripes so posts for unrelated accounts
+ * run in parallel, while the versioned Account and TransactionCategoryBalance rows catch
+ * conflicting writers on other nodes; those attempts are retried a bounded number of times.
+ */
+@Component
+@Slf4j
+public class AccountConcurrencyGuard {
+    
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private final int maxAttempts;
+    private final Counter contentionCounter;
+    private final Timer lockWaitTimer;
+    private final Counter retryCounter;
+    private final Counter retryExhaustedCounter;
+    
+    public AccountConcurrencyGuard(MeterRegistry meterRegistry,
+                                   @Value("${transaction.posting.lock-stripes:1024}") int stripeCount,
+                                   @Value("${transaction.posting.max-attempts:3}") int maxAttempts) {
+        if (stripeCount < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("transaction.posting.lock-stripes and max-attempts must be at least 1");
+        }
+        int size = Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[Math.max(size, 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = stripes.length - 1;
+        this.maxAttempts = maxAttempts;
+        this.contentionCounter = Counter.builder("transactions.posting.lock.contended")
+                .description("Account lock acquisitions that had to wait for another posting")
+                .register(meterRegistry);
+        this.lockWaitTimer = Timer.builder("transactions.posting.lock.wait")
+                .description("Time spent waiting for a contended account lock")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("transactions.posting.optimistic.retries")
+                .description("Postings retried after an optimistic locking conflict")
+                .register(meterRegistry);
+        this.retryExhaustedCounter = Counter.builder("transactions.posting.optimistic.exhausted")
+                .description("Postings rejected after exhausting optimistic locking retries")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Runs the given unit of work while holding the lock stripe of the account, retrying it
+     * when a concurrent writer on another node updated the same versioned rows first
+     *
+     * @param accountId The account whose balances the work updates
+     * @param work A complete transaction (begin to commit) so each retry re-reads current state
+     * @return the result of the first successful attempt
+     */
+    public <T> T execute(Long accountId, Supplier<T> work) {
+        ReentrantLock lock = stripeFor(accountId);
+        acquire(lock);
+        try {
+            return executeWithRetry(accountId, work);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Runs the given unit of work while holding the lock stripes of all the accounts.
+     * Stripes are always taken in ascending index order so overlapping batches cannot deadlock.
+     *
+     * @param accountIds The accounts whose balances the work updates
+     * @param work A complete transaction (begin to commit) so each retry re-reads current state
+     * @return the result of the first successful attempt
+     */
+    public <T> T executeAll(Collection<Long> accountIds, Supplier<T> work) {
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (Long accountId : accountIds) {
+            stripeIndexes.add(stripeIndex(accountId));
+        }
+        
+        int acquired = 0;
+        try {
+            for (int index : stripeIndexes) {
+                acquire(stripes[index]);
+                acquired++;
+            }
+            return executeWithRetry(accountIds, work);
+        } finally {
+            for (int index : stripeIndexes) {
+                if (acquired-- == 0) {
+                    break;
+                }
+                stripes[index].unlock();
+            }
+        }
+    }
+    
+    private <T> T executeWithRetry(Object accountId, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    retryExhaustedCounter.increment();
+                    log.error("Giving up on account {} after {} conflicting attempts", accountId, attempt);
+                    throw new RuntimeException("Account is being updated concurrently, please retry...");
+                }
+                // The conflicting writer has already committed, so retrying immediately reads its result
+                retryCounter.increment();
+                log.warn("Optimistic locking conflict on account {} (attempt {}), retrying", accountId, attempt);
+            }
+        }
+    }
+    
+    private void acquire(ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        contentionCounter.increment();
+        long start = System.nanoTime();
+        lock.lock();
+        lockWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    
+    private ReentrantLock stripeFor(Long accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+    
+    private int stripeIndex(Long accountId) {
+        int hash = Long.hashCode(accountId);
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the accounts table into contiguous account_id ranges for the partitioned batch jobs
+ */
+final class AccountRanges {
+    
+    private AccountRanges() {
+    }
+    
+    /**
+     * Splits accounts into ranges of about the same number of accounts, using account_id quantiles
+     * so gaps in the key space don't unbalance them. The last range is open-ended, so accounts
+     * opened while a job is in progress fall into it.
+     *
+     * @param maxRanges Upper bound on the number of ranges; fewer are returned for small tables
+     */
+    static List<Range> split(JdbcTemplate jdbcTemplate, int maxRanges) {
+        long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts", Long.class);
+        int ranges = (int) Math.max(1, Math.min(maxRanges, count));
+        long[] starts = new long[ranges];
+        starts[0] = count == 0 ? 0L : jdbcTemplate.queryForObject("SELECT MIN(account_id) FROM accounts", Long.class);
+        for (int i = 1; i < ranges; i++) {
+            starts[i] = jdbcTemplate.queryForObject("SELECT account_id FROM accounts ORDER BY account_id OFFSET ? ROWS FETCH FIRST 1 ROWS ONLY",
+                    Long.class, count * i / ranges);
+        }
+        
+        List<Range> split = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            split.add(new Range(i, starts[i], i + 1 < ranges ? starts[i + 1] - 1 : Long.MAX_VALUE));
+        }
+        return split;
+    }
+    
+    /**
+     * @param firstAccountId Inclusive
+     * @param lastAccountId Inclusive
+     */
+    record Range(int index, long firstAccountId, long lastAccountId) {
+    }
+}
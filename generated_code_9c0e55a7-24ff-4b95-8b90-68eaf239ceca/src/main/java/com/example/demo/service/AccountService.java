@@ -1,15 +1,22 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.AccountDTO;
-import com.example.demo.entity.Account;
+import com.example.demo.dto.CategoryBalanceDTO;
+import com.example.demo.dto.ResourceVersionDTO;
+import com.example.demo.entity.TransactionCategoryBalance;
 import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.TransactionCategoryBalanceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -17,45 +24,78 @@ import java.util.stream.Collectors;
 public class AccountService {
     
     private final AccountRepository accountRepository;
+    private final TransactionCategoryBalanceRepository categoryBalanceRepository;
+    private final CategoryBalanceWriteBehind categoryBalanceWriteBehind;
+    private final ReferenceDataRegistry referenceDataRegistry;
     
     @Transactional(readOnly = true)
     public AccountDTO getAccountById(Long accountId) {
         log.info("Fetching account with ID: {}", accountId);
-        Account account = accountRepository.findById(accountId)
+        return accountRepository.findDetailById(accountId)
                 .orElseThrow(() -> new RuntimeException("Account NOT found..."));
-        return mapToDTO(account);
+    }
+    
+    /**
+     * Version of an account: its optimistic-lock version, bumped by every change to the account
+     * including each posting, so it also versions the account's transactions and category balances
+     */
+    @Transactional(readOnly = true)
+    public Optional<ResourceVersionDTO> getAccountVersion(Long accountId) {
+        return accountRepository.findVersionById(accountId);
+    }
+    
+    /**
+     * Version of the accounts of a customer, empty when the customer has none
+     */
+    @Transactional(readOnly = true)
+    public Optional<ResourceVersionDTO> getCustomerAccountsVersion(Long customerId) {
+        ResourceVersionDTO version = accountRepository.findVersionByCustomerId(customerId);
+        return version.getVersion() == null ? Optional.empty() : Optional.of(version);
     }
     
     @Transactional(readOnly = true)
     public List<AccountDTO> getAccountsByCustomerId(Long customerId) {
         log.info("Fetching accounts for customer ID: {}", customerId);
-        List<Account> accounts = accountRepository.findByCustomerId(customerId);
-        return accounts.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return accountRepository.findDetailsByCustomerId(customerId);
     }
     
     @Transactional(readOnly = true)
     public List<AccountDTO> getAllAccounts() {
         log.info("Fetching all accounts");
-        List<Account> accounts = accountRepository.findAll();
-        return accounts.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return accountRepository.findAllDetails();
+    }
+    
+    /**
+     * Balances by transaction type and category. With write-behind enabled the deltas not yet
+     * flushed are added to the stored rows, so the result matches the postings made so far.
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryBalanceDTO> getCategoryBalances(Long accountId) {
+        log.info("Fetching category balances for account ID: {}", accountId);
+        if (!accountRepository.existsById(accountId)) {
+            throw new RuntimeException("Account NOT found...");
+        }
+        
+        List<CategoryBalanceDTO> balances = categoryBalanceWriteBehind.readConsistent(() -> {
+            Map<TransactionCategoryBalance.TransactionCategoryBalanceId, BigDecimal> pending =
+                    categoryBalanceWriteBehind.pendingDeltas(accountId);
+            List<CategoryBalanceDTO> merged = new ArrayList<>();
+            for (TransactionCategoryBalance balance : categoryBalanceRepository.findByAccountId(accountId)) {
+                BigDecimal delta = pending.remove(new TransactionCategoryBalance.TransactionCategoryBalanceId(
+                        accountId, balance.getTypeCode(), balance.getCategoryCode()));
+                merged.add(toCategoryBalanceDTO(accountId, balance.getTypeCode(), balance.getCategoryCode(),
+                        delta == null ? balance.getBalance() : balance.getBalance().add(delta)));
+            }
+            // Categories first posted since the last flush have no row yet
+            pending.forEach((id, delta) -> merged.add(toCategoryBalanceDTO(accountId, id.getTypeCode(), id.getCategoryCode(), delta)));
+            return merged;
+        });
+        balances.sort(Comparator.comparing(CategoryBalanceDTO::getTypeCode).thenComparing(CategoryBalanceDTO::getCategoryCode));
+        return balances;
     }
     
-    private AccountDTO mapToDTO(Account account) {
-        AccountDTO dto = new AccountDTO();
-        dto.setAccountId(account.getAccountId());
-        dto.setCustomerId(account.getCustomerId());
-        dto.setActiveStatus(account.getActiveStatus());
-        dto.setCurrentBalance(account.getCurrentBalance());
-        dto.setCreditLimit(account.getCreditLimit());
-        dto.setCashCreditLimit(account.getCashCreditLimit());
-        dto.setOpenDate(account.getOpenDate());
-        dto.setExpirationDate(account.getExpirationDate());
-        dto.setCurrentCycleCredit(account.getCurrentCycleCredit());
-        dto.setCurrentCycleDebit(account.getCurrentCycleDebit());
-        return dto;
+    private CategoryBalanceDTO toCategoryBalanceDTO(Long accountId, String typeCode, Integer categoryCode, BigDecimal balance) {
+        return new CategoryBalanceDTO(accountId, typeCode, categoryCode,
+                referenceDataRegistry.categoryDescription(typeCode, categoryCode), balance);
     }
 }
@@ -0,0 +1,179 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The most recent transactions of each card, newest first, kept in a fixed-size ring per card.
+ * A ring is loaded from the database on the first read of a card and then kept current by
+ * the postings of that card. The cache is bounded by an estimate of its memory use; cold cards
+ * are evicted first (W-TinyLFU). Statistics are published as the Micrometer cache.* meters
+ * tagged cache=cardActivity.
+ */
+@Component
+@Slf4j
+public class CardActivityCache {
+    
+    static final String CACHE_NAME = "cardActivity";
+    
+    // Rough retained size of one cached TransactionDTO with its strings, amount and timestamps
+    private static final int ESTIMATED_ENTRY_BYTES = 768;
+    
+    private static final Comparator<TransactionDTO> NEWEST_FIRST = Comparator
+            .comparing(TransactionDTO::getOriginalTimestamp)
+            .thenComparing(TransactionDTO::getTransactionId)
+            .reversed();
+    
+    private final Cache<String, Ring> cache;
+    private final int depth;
+    
+    public CardActivityCache(MeterRegistry meterRegistry,
+                             @Value("${transaction.card-activity.depth:50}") int depth,
+                             @Value("${transaction.card-activity.max-memory:64MB}") DataSize maxMemory) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("transaction.card-activity.depth must be at least 1");
+        }
+        this.depth = depth;
+        // Every ring is weighed as if full, so the bound holds however the rings fill up
+        long ringBytes = (long) depth * ESTIMATED_ENTRY_BYTES;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMemory.toBytes())
+                .weigher((String cardNumber, Ring ring) -> (int) Math.min(ringBytes, Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("Card activity cache: last {} transactions per card, up to {} cards", depth, maxMemory.toBytes() / ringBytes);
+    }
+    
+    /**
+     * @return the number of transactions kept per card
+     */
+    public int getDepth() {
+        return depth;
+    }
+    
+    /**
+     * Returns the newest transactions of a card, loading the card's ring on a miss
+     *
+     * @param limit At most this many transactions, no more than getDepth()
+     * @param loader Reads the newest transactions of the card, newest first, at most as many as requested
+     */
+    public Activity recent(String cardNumber, int limit, Function<Integer, List<TransactionDTO>> loader) {
+        Ring ring = cache.get(cardNumber, key -> Ring.of(depth, loader.apply(depth)));
+        return ring.newest(limit);
+    }
+    
+    /**
+     * Adds a committed transaction to its card's ring, if the card is cached
+     */
+    public void record(TransactionDTO transaction) {
+        // computeIfPresent waits for a load of the same card in progress, so the posting can't be missed
+        cache.asMap().computeIfPresent(transaction.getCardNumber(), (cardNumber, ring) -> {
+            ring.add(transaction);
+            return ring;
+        });
+    }
+    
+    public void invalidateAll(Collection<String> cardNumbers) {
+        cache.invalidateAll(cardNumbers);
+    }
+    
+    /**
+     * The newest transactions of a card
+     *
+     * @param transactions Newest first
+     * @param hasOlder Whether the card has older transactions than the last one returned
+     */
+    public record Activity(List<TransactionDTO> transactions, boolean hasOlder) {
+    }
+    
+    /**
+     * Circular buffer of the newest transactions of one card, newest at head. complete means the
+     * buffer holds the card's whole history, so nothing older exists in the database.
+     */
+    private static final class Ring {
+        private final TransactionDTO[] entries;
+        private int head;
+        private int size;
+        private boolean complete;
+        
+        private Ring(int capacity) {
+            this.entries = new TransactionDTO[capacity];
+        }
+        
+        private static Ring of(int capacity, List<TransactionDTO> newestFirst) {
+            Ring ring = new Ring(capacity);
+            int count = Math.min(newestFirst.size(), capacity);
+            for (int i = 0; i < count; i++) {
+                ring.entries[i] = newestFirst.get(i);
+            }
+            ring.size = count;
+            ring.complete = newestFirst.size() < capacity;
+            return ring;
+        }
+        
+        private synchronized Activity newest(int limit) {
+            int count = Math.min(limit, size);
+            List<TransactionDTO> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                transactions.add(get(i));
+            }
+            return new Activity(transactions, count < size || !complete);
+        }
+        
+        private synchronized void add(TransactionDTO transaction) {
+            // Find the position in newest-first order; postings are usually the newest, so scan from the head
+            int position = 0;
+            while (position < size) {
+                TransactionDTO existing = get(position);
+                if (existing.getTransactionId().equals(transaction.getTransactionId())) {
+                    return;
+                }
+                if (NEWEST_FIRST.compare(transaction, existing) < 0) {
+                    break;
+                }
+                position++;
+            }
+            if (size == entries.length) {
+                if (position == size) {
+                    // Older than everything kept: it belongs to the history behind the ring
+                    return;
+                }
+                // Drop the oldest entry to make room
+                size--;
+                complete = false;
+            }
+            if (position == 0) {
+                head = index(-1);
+                entries[head] = transaction;
+            } else {
+                for (int i = size; i > position; i--) {
+                    entries[index(i)] = entries[index(i - 1)];
+                }
+                entries[index(position)] = transaction;
+            }
+            size++;
+        }
+        
+        private TransactionDTO get(int position) {
+            return entries[index(position)];
+        }
+        
+        private int index(int position) {
+            return Math.floorMod(head + position, entries.length);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Card;
+import com.example.demo.repository.CardRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-process cache of card number to routing data (account, customer, card expiration) used on
+ * the posting hot path. Bounded by size with W-TinyLFU eviction and a TTL; changed cards are
+ * invalidated through CardRoutingCacheInvalidator. Statistics are published as the Micrometer
+ * cache.* meters tagged cache=cardRouting.
+ */
+@Component
+@Slf4j
+public class CardRoutingCache {
+    
+    static final String CACHE_NAME = "cardRouting";
+    
+    /**
+     * Routing data of a card
+     */
+    public record CardRoute(String cardNumber, Long accountId, Long customerId, LocalDate expirationDate) {
+        
+        static CardRoute of(Card card) {
+            return new CardRoute(card.getCardNumber(), card.getAccountId(), card.getCustomerId(), card.getExpirationDate());
+        }
+    }
+    
+    private final CardRepository cardRepository;
+    private final LoadingCache<String, CardRoute> cache;
+    private final long maxSize;
+    private final boolean warmOnStartup;
+    
+    public CardRoutingCache(CardRepository cardRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${transaction.card-cache.max-size:100000}") long maxSize,
+                            @Value("${transaction.card-cache.ttl:10m}") Duration ttl,
+                            @Value("${transaction.card-cache.warm-on-startup:true}") boolean warmOnStartup) {
+        this.cardRepository = cardRepository;
+        this.maxSize = maxSize;
+        this.warmOnStartup = warmOnStartup;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public CardRoute load(String cardNumber) {
+                        return cardRepository.findById(cardNumber)
+                                .map(CardRoute::of)
+                                .orElse(null);
+                    }
+                    
+                    @Override
+                    public Map<String, CardRoute> loadAll(Set<? extends String> cardNumbers) {
+                        Map<String, CardRoute> routes = new HashMap<>();
+                        for (Card card : cardRepository.findAllById(Set.copyOf(cardNumbers))) {
+                            routes.put(card.getCardNumber(), CardRoute.of(card));
+                        }
+                        return routes;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+    
+    /**
+     * Resolves a card, loading it from the database on a miss
+     */
+    public Optional<CardRoute> find(String cardNumber) {
+        return Optional.ofNullable(cache.get(cardNumber));
+    }
+    
+    /**
+     * Resolves several cards, loading all misses with a single IN query
+     *
+     * @return the routes of the cards that exist, keyed by card number
+     */
+    public Map<String, CardRoute> findAll(Collection<String> cardNumbers) {
+        return cache.getAll(cardNumbers);
+    }
+    
+    public void invalidate(String cardNumber) {
+        log.debug("Invalidating card routing for: {}", cardNumber);
+        cache.invalidate(cardNumber);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmOnStartup) {
+            return;
+        }
+        int pageNumber = 0;
+        long loaded = 0;
+        Page<Card> page;
+        do {
+            page = cardRepository.findAll(PageRequest.of(pageNumber++, 1000));
+            for (Card card : page) {
+                cache.put(card.getCardNumber(), CardRoute.of(card));
+            }
+            loaded += page.getNumberOfElements();
+        } while (page.hasNext() && loaded < maxSize);
+        log.info("Card routing cache warmed with {} cards", loaded);
+    }
+}
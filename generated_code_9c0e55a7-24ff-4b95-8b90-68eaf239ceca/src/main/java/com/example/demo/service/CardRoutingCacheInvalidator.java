@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Card;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that drops a card from the routing cache whenever it changes.
+ * The entry is evicted at flush and again after commit, so a read racing with the
+ * transaction cannot leave the old routing cached until the TTL expires.
+ */
+@Component
+@RequiredArgsConstructor
+public class CardRoutingCacheInvalidator {
+    
+    // Resolved lazily: the entity manager factory creates this listener before the cache exists
+    private final ObjectProvider<CardRoutingCache> cardRoutingCache;
+    
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCardChanged(Card card) {
+        String cardNumber = card.getCardNumber();
+        cardRoutingCache.ifAvailable(cache -> cache.invalidate(cardNumber));
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cardRoutingCache.ifAvailable(cache -> cache.invalidate(cardNumber));
+                }
+            });
+        }
+    }
+}
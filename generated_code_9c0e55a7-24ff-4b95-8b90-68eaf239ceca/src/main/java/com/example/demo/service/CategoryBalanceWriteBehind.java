@@ -0,0 +1,518 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.TransactionCategoryBalance.TransactionCategoryBalanceId;
+import com.example.demo.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Optional write-behind buffer for transaction_category_balances. Instead of updating the
+ * balance row in every posting, postings add their delta to an in-memory map and append it
+ * to a local write-ahead log; a background flush applies all pending deltas with one batched
+ * MERGE and advances the write_behind_checkpoints row in the same database transaction.
+ * <p>
+ * Every WAL record carries a token of the posting attempt and a transaction ID inserted by
+ * it, and an attempt that rolls back appends an abort marker, so recovery after a crash
+ * replays exactly the records whose posting committed even when a retry reuses the
+ * transaction ID. Deltas become visible to readers only once their posting commits. The WAL
+ * is local to this instance: run a single instance when write-behind is enabled.
+ */
+@Component
+@Slf4j
+public class CategoryBalanceWriteBehind {
+    
+    static final String CHECKPOINT_NAME = "CATEGORY_BALANCE";
+    
+    private static final int EXISTING_ID_CHUNK = 1000;
+    
+    private static final String MERGE_SQL = """
+            MERGE INTO transaction_category_balances b
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(2)), CAST(? AS INT), CAST(? AS DECIMAL(19,2))))
+                AS d(account_id, type_code, category_code, delta)
+            ON b.account_id = d.account_id AND b.type_code = d.type_code AND b.category_code = d.category_code
+            WHEN MATCHED THEN UPDATE SET balance = b.balance + d.delta, version = b.version + 1, updated_at = ?
+            WHEN NOT MATCHED THEN INSERT (account_id, type_code, category_code, balance, version, created_at, updated_at)
+                VALUES (d.account_id, d.type_code, d.category_code, d.delta, 0, ?, ?)""";
+    
+    private static final String CHECKPOINT_SQL =
+            "UPDATE write_behind_checkpoints SET last_segment = ?, updated_at = ? WHERE checkpoint_name = ? AND last_segment < ?";
+    
+    private final boolean enabled;
+    private final int maxPending;
+    private final Duration flushInterval;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate flushTemplate;
+    private final TransactionRepository transactionRepository;
+    private final WriteAheadLog wal;
+    
+    // Postings hold the read lock from their WAL append until their transaction completes;
+    // a flush takes the write lock only to swap the map and seal the WAL segment
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    // Readers hold the read lock while combining the table with the buffered deltas
+    private final ReentrantReadWriteLock viewLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    
+    private volatile Map<TransactionCategoryBalanceId, BigDecimal> pending = new ConcurrentHashMap<>();
+    private volatile Map<TransactionCategoryBalanceId, BigDecimal> flushing = Map.of();
+    private ScheduledExecutorService flusher;
+    
+    public CategoryBalanceWriteBehind(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      TransactionRepository transactionRepository,
+                                      @Value("${transaction.category-balance.write-behind.enabled:false}") boolean enabled,
+                                      @Value("${transaction.category-balance.write-behind.flush-interval:1s}") Duration flushInterval,
+                                      @Value("${transaction.category-balance.write-behind.max-pending:10000}") int maxPending,
+                                      @Value("${transaction.category-balance.write-behind.wal-dir:data/category-balance-wal}") Path walDir,
+                                      @Value("${transaction.category-balance.write-behind.wal-fsync:true}") boolean fsync) {
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.maxPending = maxPending;
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushTemplate = new TransactionTemplate(transactionManager);
+        this.transactionRepository = transactionRepository;
+        this.wal = new WriteAheadLog(walDir, fsync);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        recover();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "category-balance-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Category balance write-behind enabled: flush every {}, WAL in {}", flushInterval, wal.dir);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        wal.close();
+    }
+    
+    /**
+     * Buffers the category balance deltas of a posting. Must be called inside the posting's
+     * transaction: the deltas are logged now, become pending when the transaction commits and
+     * are marked aborted in the WAL if it rolls back.
+     *
+     * @param transactionId A transaction ID inserted by the same database transaction; recovery
+     *                      replays the deltas only if this transaction exists and the attempt
+     *                      was not aborted
+     * @param deltas The amount to add per (account, type, category)
+     */
+    public void record(String transactionId, Map<TransactionCategoryBalanceId, BigDecimal> deltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Category balance deltas must be recorded inside a transaction");
+        }
+        String attempt = UUID.randomUUID().toString();
+        segmentLock.readLock().lock();
+        try {
+            wal.append(attempt, transactionId, deltas);
+        } catch (RuntimeException e) {
+            segmentLock.readLock().unlock();
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        deltas.forEach((id, delta) -> pending.merge(id, delta, BigDecimal::add));
+                    } else {
+                        // A retry may commit the same transaction ID: recovery must not replay this attempt
+                        wal.appendAbort(attempt);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Cannot mark aborted posting {} in category balance WAL: {}", transactionId, e.getMessage());
+                } finally {
+                    segmentLock.readLock().unlock();
+                }
+                if (pending.size() >= maxPending && !flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+                    flusher.execute(CategoryBalanceWriteBehind.this::flushQuietly);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Runs a read of the balance table so that it sees each buffered delta exactly once:
+     * either still pending (see pendingDeltas) or already applied to the table
+     */
+    public <T> T readConsistent(Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+        viewLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            viewLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @return the committed deltas of the account not yet applied to the table; only meaningful inside readConsistent
+     */
+    public Map<TransactionCategoryBalanceId, BigDecimal> pendingDeltas(Long accountId) {
+        Map<TransactionCategoryBalanceId, BigDecimal> deltas = new HashMap<>();
+        if (!enabled) {
+            return deltas;
+        }
+        for (Map<TransactionCategoryBalanceId, BigDecimal> buffer : List.of(flushing, pending)) {
+            buffer.forEach((id, delta) -> {
+                if (id.getAccountId().equals(accountId)) {
+                    deltas.merge(id, delta, BigDecimal::add);
+                }
+            });
+        }
+        return deltas;
+    }
+    
+    /**
+     * Applies all pending deltas to the table
+     *
+     * @return the number of balance rows written
+     */
+    public int flush() {
+        if (!enabled) {
+            return 0;
+        }
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            Map<TransactionCategoryBalanceId, BigDecimal> drained;
+            long sealedSegment;
+            segmentLock.writeLock().lock();
+            try {
+                // Nothing was posted since the last flush: keep the current segment
+                if (wal.isEmpty()) {
+                    return 0;
+                }
+                viewLock.writeLock().lock();
+                try {
+                    drained = pending;
+                    flushing = drained;
+                    pending = new ConcurrentHashMap<>();
+                } finally {
+                    viewLock.writeLock().unlock();
+                }
+                sealedSegment = wal.rotate();
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+            
+            drained.values().removeIf(delta -> delta.signum() == 0);
+            viewLock.writeLock().lock();
+            try {
+                if (!drained.isEmpty()) {
+                    apply(drained, sealedSegment);
+                }
+                flushing = Map.of();
+            } catch (RuntimeException e) {
+                // The sealed segment stays on disk; the next successful flush covers it
+                drained.forEach((id, delta) -> pending.merge(id, delta, BigDecimal::add));
+                flushing = Map.of();
+                throw e;
+            } finally {
+                viewLock.writeLock().unlock();
+            }
+            wal.deleteUpTo(sealedSegment);
+            if (!drained.isEmpty()) {
+                log.debug("Flushed {} category balance deltas up to WAL segment {}", drained.size(), sealedSegment);
+            }
+            return drained.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Category balance flush failed, deltas kept for the next attempt: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Upserts the deltas with one JDBC batch and marks every segment up to lastSegment as applied
+     */
+    private void apply(Map<TransactionCategoryBalanceId, BigDecimal> deltas, long lastSegment) {
+        List<Map.Entry<TransactionCategoryBalanceId, BigDecimal>> rows = new ArrayList<>(deltas.entrySet());
+        LocalDateTime now = LocalDateTime.now();
+        flushTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(MERGE_SQL, rows, rows.size(), (PreparedStatement statement, Map.Entry<TransactionCategoryBalanceId, BigDecimal> row) -> {
+                statement.setLong(1, row.getKey().getAccountId());
+                statement.setString(2, row.getKey().getTypeCode());
+                statement.setInt(3, row.getKey().getCategoryCode());
+                statement.setBigDecimal(4, row.getValue());
+                statement.setObject(5, now);
+                statement.setObject(6, now);
+                statement.setObject(7, now);
+            });
+            jdbcTemplate.update(CHECKPOINT_SQL, lastSegment, now, CHECKPOINT_NAME, lastSegment);
+        });
+    }
+    
+    /**
+     * Replays the WAL segments after the checkpoint, keeping only records of committed, not aborted postings
+     */
+    private void recover() {
+        long checkpoint = jdbcTemplate.queryForObject(
+                "SELECT last_segment FROM write_behind_checkpoints WHERE checkpoint_name = ?", Long.class, CHECKPOINT_NAME);
+        List<Long> segments = wal.segments();
+        long lastSegment = segments.isEmpty() ? checkpoint : Math.max(checkpoint, segments.get(segments.size() - 1));
+        
+        List<WalRecord> records = new ArrayList<>();
+        Set<String> aborted = new HashSet<>();
+        for (long segment : segments) {
+            if (segment > checkpoint) {
+                wal.read(segment, records, aborted);
+            }
+        }
+        Set<String> committed = committedTransactionIds(records);
+        Map<TransactionCategoryBalanceId, BigDecimal> deltas = new HashMap<>();
+        for (WalRecord record : records) {
+            if (committed.contains(record.transactionId()) && !aborted.contains(record.attempt())) {
+                deltas.merge(record.id(), record.delta(), BigDecimal::add);
+            }
+        }
+        deltas.values().removeIf(delta -> delta.signum() == 0);
+        
+        if (!deltas.isEmpty()) {
+            apply(deltas, lastSegment);
+        }
+        wal.deleteUpTo(lastSegment);
+        wal.open(lastSegment + 1);
+        if (!records.isEmpty()) {
+            log.info("Recovered category balance WAL: {} records, {} aborted attempts, {} committed deltas applied",
+                    records.size(), aborted.size(), deltas.size());
+        }
+    }
+    
+    private Set<String> committedTransactionIds(List<WalRecord> records) {
+        List<String> transactionIds = records.stream().map(WalRecord::transactionId).distinct().toList();
+        Set<String> committed = new HashSet<>();
+        for (int i = 0; i < transactionIds.size(); i += EXISTING_ID_CHUNK) {
+            committed.addAll(transactionRepository.findExistingIds(
+                    transactionIds.subList(i, Math.min(i + EXISTING_ID_CHUNK, transactionIds.size()))));
+        }
+        return committed;
+    }
+    
+    private record WalRecord(String attempt, String transactionId, TransactionCategoryBalanceId id, BigDecimal delta) {
+    }
+    
+    /**
+     * Append-only segment files of text records "attempt|transactionId|accountId|typeCode|categoryCode|delta"
+     * and abort markers "ABORT|attempt"
+     */
+    private static final class WriteAheadLog {
+        private static final String PREFIX = "segment-";
+        private static final String SUFFIX = ".wal";
+        private static final String ABORT = "ABORT";
+        
+        private final Path dir;
+        private final boolean fsync;
+        private final ReentrantLock appendLock = new ReentrantLock();
+        private FileChannel channel;
+        private long segment;
+        private boolean written;
+        
+        private WriteAheadLog(Path dir, boolean fsync) {
+            this.dir = dir;
+            this.fsync = fsync;
+        }
+        
+        private void open(long newSegment) {
+            try {
+                Files.createDirectories(dir);
+                channel = FileChannel.open(path(newSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                segment = newSegment;
+                written = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open category balance WAL segment " + newSegment, e);
+            }
+        }
+        
+        private void append(String attempt, String transactionId, Map<TransactionCategoryBalanceId, BigDecimal> deltas) {
+            StringBuilder text = new StringBuilder();
+            deltas.forEach((id, delta) -> text.append(attempt).append('|')
+                    .append(transactionId).append('|')
+                    .append(id.getAccountId()).append('|')
+                    .append(id.getTypeCode()).append('|')
+                    .append(id.getCategoryCode()).append('|')
+                    .append(delta.toPlainString()).append('\n'));
+            write(text.toString());
+        }
+        
+        private void appendAbort(String attempt) {
+            write(ABORT + '|' + attempt + '\n');
+        }
+        
+        private void write(String text) {
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            appendLock.lock();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                written = true;
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write category balance WAL", e);
+            } finally {
+                appendLock.unlock();
+            }
+        }
+        
+        private boolean isEmpty() {
+            appendLock.lock();
+            try {
+                return !written;
+            } finally {
+                appendLock.unlock();
+            }
+        }
+        
+        /**
+         * Closes the current segment and starts the next one
+         *
+         * @return the number of the closed segment
+         */
+        private long rotate() {
+            appendLock.lock();
+            try {
+                long sealed = segment;
+                close();
+                open(sealed + 1);
+                return sealed;
+            } finally {
+                appendLock.unlock();
+            }
+        }
+        
+        private void close() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.warn("Cannot close category balance WAL segment {}: {}", segment, e.getMessage());
+            }
+        }
+        
+        private List<Long> segments() {
+            if (!Files.isDirectory(dir)) {
+                return List.of();
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                return files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                        .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                        .sorted()
+                        .toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot list category balance WAL", e);
+            }
+        }
+        
+        /**
+         * Adds the delta records of a segment to records and the attempts it marks aborted to aborted
+         */
+        private void read(long segmentNumber, List<WalRecord> records, Set<String> aborted) {
+            try {
+                for (String line : Files.readAllLines(path(segmentNumber), StandardCharsets.UTF_8)) {
+                    String[] fields = line.split("\\|");
+                    if (fields.length == 2 && ABORT.equals(fields[0])) {
+                        aborted.add(fields[1]);
+                        continue;
+                    }
+                    if (fields.length != 6) {
+                        // Torn write at the end of the segment; the posting never committed
+                        log.warn("Skipping incomplete record in category balance WAL segment {}", segmentNumber);
+                        continue;
+                    }
+                    records.add(new WalRecord(fields[0], fields[1], new TransactionCategoryBalanceId(
+                            Long.valueOf(fields[2]), fields[3], Integer.valueOf(fields[4])), new BigDecimal(fields[5])));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read category balance WAL segment " + segmentNumber, e);
+            }
+        }
+        
+        private void deleteUpTo(long lastSegment) {
+            for (long existing : segments()) {
+                if (existing <= lastSegment) {
+                    try {
+                        Files.deleteIfExists(path(existing));
+                    } catch (IOException e) {
+                        log.warn("Cannot delete category balance WAL segment {}: {}", existing, e.getMessage());
+                    }
+                }
+            }
+        }
+        
+        private Path path(long segmentNumber) {
+            return dir.resolve(String.format("%s%019d%s", PREFIX, segmentNumber, SUFFIX));
+        }
+    }
+}
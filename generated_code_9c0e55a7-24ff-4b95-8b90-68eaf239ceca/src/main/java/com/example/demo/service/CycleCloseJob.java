@@ -0,0 +1,306 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CycleClosePartitionDTO;
+import com.example.demo.dto.CycleCloseStatusDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Closes the billing cycle of every account: the cycle credit and debit totals are copied into
+ * an account_statements row and reset to zero. accounts is split into account_id ranges that
+ * are closed in parallel, each in chunks of one short database transaction. A chunk locks only
+ * its own account rows and bumps their version, so postings to those accounts wait for at most
+ * one chunk and then retry through AccountConcurrencyGuard. Every chunk commits its range
+ * checkpoint (next_account_id in cycle_close_partitions) with its statements, so starting the
+ * same cycle again after a crash or failure resumes each range where it stopped. Single instance only.
+ */
+@Service
+@Slf4j
+public class CycleCloseJob {
+    
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    private static final String LOCK_CHUNK_SQL = """
+            SELECT account_id, current_balance, current_cycle_credit, current_cycle_debit FROM accounts
+            WHERE account_id >= ? AND account_id <= ? ORDER BY account_id FETCH FIRST ? ROWS ONLY FOR UPDATE""";
+    
+    private static final String INSERT_STATEMENT_SQL = """
+            INSERT INTO account_statements (account_id, cycle_end_date, cycle_credit, cycle_debit, closing_balance, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+    
+    private static final String RESET_ACCOUNT_SQL = """
+            UPDATE accounts SET current_cycle_credit = 0, current_cycle_debit = 0, version = version + 1, updated_at = ?
+            WHERE account_id = ?""";
+    
+    private static final String CHECKPOINT_SQL = """
+            UPDATE cycle_close_partitions SET next_account_id = ?, accounts_closed = accounts_closed + ?, updated_at = ?
+            WHERE cycle_end_date = ? AND partition_index = ?""";
+    
+    private static final String PARTITION_STATUS_SQL = """
+            UPDATE cycle_close_partitions SET status = ?, error_message = ?, updated_at = ?
+            WHERE cycle_end_date = ? AND partition_index = ?""";
+    
+    private static final String SELECT_PARTITIONS_SQL = """
+            SELECT partition_index, first_account_id, last_account_id, next_account_id, accounts_closed, status, error_message
+            FROM cycle_close_partitions WHERE cycle_end_date = ? ORDER BY partition_index""";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitionCount;
+    private final int parallelism;
+    private final int chunkSize;
+    private final Counter accountsClosed;
+    private final Timer chunkTimer;
+    
+    // Cycle being closed by this instance, and the progress of that run
+    private final AtomicReference<LocalDate> running = new AtomicReference<>();
+    private final AtomicInteger runPartitions = new AtomicInteger();
+    private final AtomicInteger runPartitionsDone = new AtomicInteger();
+    private volatile boolean stopping;
+    private volatile ForkJoinPool workers;
+    
+    public CycleCloseJob(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${billing.cycle-close.partitions:16}") int partitionCount,
+                         @Value("${billing.cycle-close.parallelism:4}") int parallelism,
+                         @Value("${billing.cycle-close.chunk-size:200}") int chunkSize) {
+        if (partitionCount < 1 || parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("billing.cycle-close.partitions, parallelism and chunk-size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitionCount = partitionCount;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.accountsClosed = Counter.builder("billing.cycle.close.accounts")
+                .description("Accounts whose billing cycle was closed")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("billing.cycle.close.chunk")
+                .description("Time to close one chunk of accounts, commit included")
+                .register(meterRegistry);
+        Gauge.builder("billing.cycle.close.progress", this, CycleCloseJob::progress)
+                .description("Share of the account ranges of the running cycle close that are done")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Starts closing the cycle in the background, or resumes it when an earlier run of the same
+     * cycle stopped before finishing
+     *
+     * @param cycleEndDate Last day of the cycle, the key of the statements written
+     * @return the status of the cycle when the run was started
+     */
+    public CycleCloseStatusDTO start(LocalDate cycleEndDate) {
+        if (!running.compareAndSet(null, cycleEndDate)) {
+            throw new RuntimeException("Cycle close is already running for " + running.get() + "...");
+        }
+        List<CycleClosePartitionDTO> remaining;
+        try {
+            List<CycleClosePartitionDTO> partitions = findPartitions(cycleEndDate);
+            if (partitions.isEmpty()) {
+                partitions = plan(cycleEndDate);
+            }
+            remaining = partitions.stream()
+                    .filter(partition -> !STATUS_COMPLETED.equals(partition.getStatus()))
+                    .toList();
+        } catch (RuntimeException e) {
+            running.set(null);
+            throw e;
+        }
+        if (remaining.isEmpty()) {
+            running.set(null);
+            log.info("Cycle {} is already closed", cycleEndDate);
+            return getStatus(cycleEndDate);
+        }
+        
+        log.info("Closing cycle {}: {} account ranges, {} in parallel", cycleEndDate, remaining.size(), parallelism);
+        runPartitions.set(remaining.size());
+        runPartitionsDone.set(0);
+        // Platform threads: JDBC drivers block in synchronized code while waiting for row locks, which would pin virtual threads
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        workers = pool;
+        CompletableFuture<?>[] tasks = remaining.stream()
+                .map(partition -> CompletableFuture.runAsync(() -> closePartition(cycleEndDate, partition), pool))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).whenComplete((result, failure) -> {
+            pool.shutdown();
+            workers = null;
+            running.set(null);
+            log.info("Cycle close {} finished", cycleEndDate);
+        });
+        return getStatus(cycleEndDate);
+    }
+    
+    public CycleCloseStatusDTO getStatus(LocalDate cycleEndDate) {
+        List<CycleClosePartitionDTO> partitions = findPartitions(cycleEndDate);
+        if (partitions.isEmpty()) {
+            throw new RuntimeException("Cycle close NOT found...");
+        }
+        long closed = 0;
+        int completed = 0;
+        boolean failed = false;
+        for (CycleClosePartitionDTO partition : partitions) {
+            closed += partition.getAccountsClosed();
+            completed += STATUS_COMPLETED.equals(partition.getStatus()) ? 1 : 0;
+            failed |= STATUS_FAILED.equals(partition.getStatus());
+        }
+        String status;
+        if (cycleEndDate.equals(running.get())) {
+            status = STATUS_RUNNING;
+        } else if (completed == partitions.size()) {
+            status = STATUS_COMPLETED;
+        } else {
+            status = failed ? STATUS_FAILED : STATUS_PENDING;
+        }
+        return new CycleCloseStatusDTO(cycleEndDate, status, closed, completed, partitions);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        ForkJoinPool pool = workers;
+        if (pool != null) {
+            // Chunks in flight commit or roll back; the ranges resume from their checkpoints on the next start
+            pool.shutdown();
+            try {
+                pool.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private List<CycleClosePartitionDTO> plan(LocalDate cycleEndDate) {
+        List<CycleClosePartitionDTO> partitions = AccountRanges.split(jdbcTemplate, partitionCount).stream()
+                .map(range -> new CycleClosePartitionDTO(range.index(), range.firstAccountId(), range.lastAccountId(),
+                        range.firstAccountId(), 0L, STATUS_PENDING, null))
+                .toList();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO cycle_close_partitions (cycle_end_date, partition_index, first_account_id, last_account_id,
+                    next_account_id, accounts_closed, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?)""",
+                partitions, partitions.size(), (PreparedStatement statement, CycleClosePartitionDTO partition) -> {
+                    statement.setDate(1, Date.valueOf(cycleEndDate));
+                    statement.setInt(2, partition.getPartitionIndex());
+                    statement.setLong(3, partition.getFirstAccountId());
+                    statement.setLong(4, partition.getLastAccountId());
+                    statement.setLong(5, partition.getNextAccountId());
+                    statement.setString(6, STATUS_PENDING);
+                    statement.setTimestamp(7, now);
+                    statement.setTimestamp(8, now);
+                });
+        log.info("Planned cycle close {}: {} account ranges", cycleEndDate, partitions.size());
+        return partitions;
+    }
+    
+    private void closePartition(LocalDate cycleEndDate, CycleClosePartitionDTO partition) {
+        int index = partition.getPartitionIndex();
+        updatePartitionStatus(cycleEndDate, index, STATUS_RUNNING, null);
+        try {
+            long next = partition.getNextAccountId();
+            while (!stopping) {
+                long from = next;
+                Chunk chunk = chunkTimer.record(() -> transactionTemplate.execute(status ->
+                        closeChunk(cycleEndDate, index, from, partition.getLastAccountId())));
+                accountsClosed.increment(chunk.accounts());
+                if (chunk.accounts() < chunkSize || chunk.lastAccountId() >= partition.getLastAccountId()) {
+                    updatePartitionStatus(cycleEndDate, index, STATUS_COMPLETED, null);
+                    runPartitionsDone.incrementAndGet();
+                    return;
+                }
+                next = chunk.lastAccountId() + 1;
+            }
+            // Shutting down: the range stays RUNNING and is resumed by the next start
+            log.info("Cycle close {} range {} stopped at account {}", cycleEndDate, index, next);
+        } catch (RuntimeException e) {
+            log.error("Cycle close {} range {} failed: {}", cycleEndDate, index, e.getMessage(), e);
+            String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            updatePartitionStatus(cycleEndDate, index, STATUS_FAILED, message.substring(0, Math.min(message.length(), 255)));
+            runPartitionsDone.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Closes up to chunkSize accounts from the given account_id; must run in a transaction
+     */
+    private Chunk closeChunk(LocalDate cycleEndDate, int index, long fromAccountId, long lastAccountId) {
+        List<AccountTotals> accounts = jdbcTemplate.query(LOCK_CHUNK_SQL, (rs, row) -> new AccountTotals(
+                rs.getLong(1), rs.getBigDecimal(2), rs.getBigDecimal(3), rs.getBigDecimal(4)),
+                fromAccountId, lastAccountId, chunkSize);
+        if (accounts.isEmpty()) {
+            return new Chunk(0, lastAccountId);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Date cycleEnd = Date.valueOf(cycleEndDate);
+        
+        jdbcTemplate.batchUpdate(INSERT_STATEMENT_SQL, accounts, accounts.size(), (PreparedStatement statement, AccountTotals account) -> {
+            statement.setLong(1, account.accountId());
+            statement.setDate(2, cycleEnd);
+            statement.setBigDecimal(3, account.cycleCredit());
+            statement.setBigDecimal(4, account.cycleDebit());
+            statement.setBigDecimal(5, account.balance());
+            statement.setTimestamp(6, now);
+        });
+        // Accounts without activity keep their row untouched, so they don't conflict with postings
+        List<AccountTotals> active = accounts.stream()
+                .filter(account -> account.cycleCredit().signum() != 0 || account.cycleDebit().signum() != 0)
+                .toList();
+        if (!active.isEmpty()) {
+            jdbcTemplate.batchUpdate(RESET_ACCOUNT_SQL, active, active.size(), (PreparedStatement statement, AccountTotals account) -> {
+                statement.setTimestamp(1, now);
+                statement.setLong(2, account.accountId());
+            });
+        }
+        
+        long lastClosed = accounts.get(accounts.size() - 1).accountId();
+        jdbcTemplate.update(CHECKPOINT_SQL, lastClosed == Long.MAX_VALUE ? lastClosed : lastClosed + 1, accounts.size(), now, cycleEnd, index);
+        return new Chunk(accounts.size(), lastClosed);
+    }
+    
+    private void updatePartitionStatus(LocalDate cycleEndDate, int index, String status, String errorMessage) {
+        jdbcTemplate.update(PARTITION_STATUS_SQL, status, errorMessage, Timestamp.valueOf(LocalDateTime.now()), Date.valueOf(cycleEndDate), index);
+    }
+    
+    private List<CycleClosePartitionDTO> findPartitions(LocalDate cycleEndDate) {
+        return jdbcTemplate.query(SELECT_PARTITIONS_SQL, (rs, row) -> new CycleClosePartitionDTO(
+                rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getString(6), rs.getString(7)),
+                Date.valueOf(cycleEndDate));
+    }
+    
+    private double progress() {
+        int partitions = runPartitions.get();
+        return running.get() == null || partitions == 0 ? 0.0 : (double) runPartitionsDone.get() / partitions;
+    }
+    
+    private record AccountTotals(long accountId, BigDecimal balance, BigDecimal cycleCredit, BigDecimal cycleDebit) {
+    }
+    
+    private record Chunk(int accounts, long lastAccountId) {
+    }
+}
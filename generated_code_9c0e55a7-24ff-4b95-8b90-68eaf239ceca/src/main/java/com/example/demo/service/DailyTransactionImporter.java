@@ -0,0 +1,560 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionBatchItemResultDTO;
+import com.example.demo.dto.TransactionCreateDTO;
+import com.example.demo.dto.TransactionImportDTO;
+import com.example.demo.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imports CardDemo daily transaction files (DALYTRAN, see DailyTransactionRecordParser) from the
+ * inbound directory, in the way of the CardDemo posting program CBTRN02C. The file is memory-mapped
+ * in windows of whole records and posted in batches through TransactionService, so the same card,
+ * account, limit and reference-data rules apply as to the REST postings. Every record keeps its
+ * DALYTRAN-ID as transaction ID. A record whose ID is already used by another posting, or lies in
+ * the range of generated transaction IDs, is rejected. Records that are not posted are
+ * copied to a reject file in the reject directory, followed by a reason code and description as in DALYREJS.
+ * <p>
+ * After each batch the byte offset reached is committed to transaction_imports with the reject
+ * file length, so starting the same file again resumes after the last batch. The ID of every
+ * posted record is written to transaction_import_records in its posting transaction. Records of a
+ * batch cut short by a crash are replayed: those this file already posted are skipped by ID and
+ * the reject file is cut back to its checkpointed length. Single instance only.
+ */
+@Service
+@Slf4j
+public class DailyTransactionImporter {
+    
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_STOPPED = "STOPPED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    // Reject reason codes; 100-103 are those of CBTRN02C
+    static final int REASON_CARD_NOT_FOUND = 100;
+    static final int REASON_ACCOUNT_NOT_FOUND = 101;
+    static final int REASON_OVERLIMIT = 102;
+    static final int REASON_ACCOUNT_EXPIRED = 103;
+    static final int REASON_INVALID_RECORD = 104;
+    static final int REASON_INVALID_CODE = 105;
+    static final int REASON_DUPLICATE_ID = 106;
+    static final int REASON_GENERATED_ID = 107;
+    static final int REASON_OTHER = 109;
+    
+    private static final Map<String, Integer> REASON_CODES = Map.of(
+            TransactionMetrics.REASON_CARD_NOT_FOUND, REASON_CARD_NOT_FOUND,
+            TransactionMetrics.REASON_ACCOUNT_NOT_FOUND, REASON_ACCOUNT_NOT_FOUND,
+            TransactionMetrics.REASON_OVERLIMIT, REASON_OVERLIMIT,
+            TransactionMetrics.REASON_ACCOUNT_EXPIRED, REASON_ACCOUNT_EXPIRED,
+            TransactionMetrics.REASON_INVALID_REQUEST, REASON_INVALID_RECORD,
+            TransactionMetrics.REASON_INVALID_DATE, REASON_INVALID_RECORD,
+            TransactionMetrics.REASON_NOT_CONFIRMED, REASON_INVALID_RECORD,
+            TransactionMetrics.REASON_INVALID_CODE, REASON_INVALID_CODE);
+    
+    // Rejected record, 4-digit reason code, 76-character description and a line feed
+    private static final int REJECT_DESCRIPTION_LENGTH = 76;
+    private static final int REJECT_LENGTH = DailyTransactionRecordParser.RECORD_LENGTH + 4 + REJECT_DESCRIPTION_LENGTH + 1;
+    
+    private static final String CHECKPOINT_SQL = """
+            UPDATE transaction_imports SET byte_offset = ?, records_read = records_read + ?, records_posted = records_posted + ?,
+                records_rejected = records_rejected + ?, records_skipped = records_skipped + ?, reject_bytes = ?,
+                records_per_second = ?, updated_at = ?
+            WHERE file_name = ?""";
+    
+    private static final String SELECT_IMPORT_SQL = """
+            SELECT file_name, status, file_size, byte_offset, records_read, records_posted, records_rejected, records_skipped,
+                records_per_second, error_message, reject_bytes
+            FROM transaction_imports WHERE file_name = ?""";
+    
+    private static final String INSERT_RECORD_SQL =
+            "INSERT INTO transaction_import_records (file_name, transaction_id, created_at) VALUES (?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionService transactionService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final Path inboundDir;
+    private final Path rejectDir;
+    private final int batchSize;
+    private final long mapWindowBytes;
+    private final Counter postedRecords;
+    private final Counter rejectedRecords;
+    private final Counter skippedRecords;
+    private final Timer batchTimer;
+    
+    // Imports running on this instance, by resolved file path, so every spelling of a name maps to one import
+    private final Map<Path, Thread> running = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+    
+    public DailyTransactionImporter(JdbcTemplate jdbcTemplate,
+                                    TransactionService transactionService,
+                                    TransactionIdGenerator transactionIdGenerator,
+                                    TransactionRepository transactionRepository,
+                                    TransactionArchive transactionArchive,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${transaction.import.inbound-dir:data/import/inbound}") Path inboundDir,
+                                    @Value("${transaction.import.reject-dir:data/import/rejects}") Path rejectDir,
+                                    @Value("${transaction.import.batch-size:1000}") int batchSize,
+                                    @Value("${transaction.import.map-window:256MB}") DataSize mapWindow,
+                                    @Value("${transaction.batch.max-size:5000}") int batchMaxSize) {
+        if (batchSize < 1 || batchSize > batchMaxSize) {
+            throw new IllegalArgumentException("transaction.import.batch-size must be between 1 and transaction.batch.max-size");
+        }
+        if (mapWindow.toBytes() < 1024 || mapWindow.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("transaction.import.map-window must be between 1KB and 2GB");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionService = transactionService;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.inboundDir = inboundDir.toAbsolutePath().normalize();
+        this.rejectDir = rejectDir.toAbsolutePath().normalize();
+        this.batchSize = batchSize;
+        this.mapWindowBytes = mapWindow.toBytes();
+        this.postedRecords = recordCounter(meterRegistry, "posted");
+        this.rejectedRecords = recordCounter(meterRegistry, "rejected");
+        this.skippedRecords = recordCounter(meterRegistry, "skipped");
+        this.batchTimer = Timer.builder("transactions.import.batch")
+                .description("Time to parse and post one batch of a daily transaction file")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Starts importing a file of the inbound directory in the background, or resumes an import
+     * of the same file that stopped before the end
+     *
+     * @param fileName Name of the file in the inbound directory
+     * @param offset Byte offset of the first record to import, overriding the checkpoint; 0 imports
+     *               the whole file again, skipping the records already posted
+     * @return the status of the import when it was started
+     */
+    public TransactionImportDTO start(String fileName, Long offset) {
+        Path file = inboundDir.resolve(fileName).normalize();
+        if (!file.getParent().equals(inboundDir) || !Files.isRegularFile(file)) {
+            throw new RuntimeException("Import file NOT found...");
+        }
+        String name = file.getFileName().toString();
+        Thread worker = Thread.ofPlatform().name("transaction-import-" + name).unstarted(() -> importFile(file));
+        if (running.putIfAbsent(file, worker) != null) {
+            throw new RuntimeException("Import of " + name + " is already running...");
+        }
+        try {
+            if (!prepare(file, offset)) {
+                running.remove(file);
+                log.info("{} is already imported", name);
+                return getStatus(name);
+            }
+        } catch (RuntimeException e) {
+            running.remove(file);
+            throw e;
+        }
+        worker.start();
+        return getStatus(name);
+    }
+    
+    public TransactionImportDTO getStatus(String fileName) {
+        return findImport(fileName)
+                .orElseThrow(() -> new RuntimeException("Import NOT found..."))
+                .status();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        // Batches in flight finish and checkpoint; the imports resume from there on the next start
+        for (Thread worker : running.values()) {
+            try {
+                worker.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Records the import as RUNNING from its start offset
+     *
+     * @return false when the file has already been imported completely
+     */
+    private boolean prepare(Path file, Long offset) {
+        String fileName = file.getFileName().toString();
+        long fileSize = size(file);
+        int recordLength = recordLength(file);
+        if (offset != null && (offset < 0 || offset > fileSize || offset % recordLength != 0)) {
+            throw new RuntimeException("Offset must be a multiple of the record length (" + recordLength + ") within the file...");
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        ImportRow row = findImport(fileName).orElse(null);
+        if (row == null) {
+            jdbcTemplate.update("""
+                    INSERT INTO transaction_imports (file_name, file_size, byte_offset, status, created_at, updated_at)
+                    VALUES (?, ?, ?, ?, ?, ?)""", fileName, fileSize, offset == null ? 0 : offset, STATUS_RUNNING, now, now);
+            return true;
+        }
+        if (offset == null) {
+            if (row.status().getFileSize() != fileSize) {
+                throw new RuntimeException("File " + fileName + " changed since its last import; give an offset to import it again...");
+            }
+            if (STATUS_COMPLETED.equals(row.status().getStatus())) {
+                return false;
+            }
+        }
+        if (offset != null && offset == 0) {
+            // A full re-run starts its counts and rejects afresh
+            jdbcTemplate.update("""
+                    UPDATE transaction_imports SET file_size = ?, byte_offset = 0, records_read = 0, records_posted = 0,
+                        records_rejected = 0, records_skipped = 0, reject_bytes = 0, status = ?, error_message = NULL, updated_at = ?
+                    WHERE file_name = ?""", fileSize, STATUS_RUNNING, now, fileName);
+        } else {
+            jdbcTemplate.update("""
+                    UPDATE transaction_imports SET file_size = ?, byte_offset = ?, status = ?, error_message = NULL, updated_at = ?
+                    WHERE file_name = ?""", fileSize, offset == null ? row.status().getByteOffset() : offset, STATUS_RUNNING, now, fileName);
+        }
+        return true;
+    }
+    
+    private void importFile(Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            ImportRow row = findImport(fileName).orElseThrow();
+            Files.createDirectories(rejectDir);
+            try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel rejects = FileChannel.open(rejectDir.resolve(fileName + ".rejects"),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Rejects written after the checkpoint belong to records that are replayed now
+                rejects.truncate(row.rejectBytes());
+                rejects.position(row.rejectBytes());
+                String status = new Run(fileName, input, rejects, recordLength(file)).execute(row.status().getByteOffset());
+                updateStatus(fileName, status, null);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Import of {} failed: {}", fileName, e.getMessage(), e);
+            String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            updateStatus(fileName, STATUS_FAILED, message.substring(0, Math.min(message.length(), 255)));
+        } finally {
+            running.remove(file);
+        }
+    }
+    
+    /**
+     * One pass over a file, from the checkpoint to the end or to shutdown
+     */
+    private final class Run {
+        private final String fileName;
+        private final FileChannel input;
+        private final FileChannel rejects;
+        private final int recordLength;
+        private final DailyTransactionRecordParser parser = new DailyTransactionRecordParser();
+        private final ByteBuffer rejectBuffer;
+        private final long startNanos = System.nanoTime();
+        private long runRecords;
+        
+        private Run(String fileName, FileChannel input, FileChannel rejects, int recordLength) {
+            this.fileName = fileName;
+            this.input = input;
+            this.rejects = rejects;
+            this.recordLength = recordLength;
+            this.rejectBuffer = ByteBuffer.allocate(batchSize * REJECT_LENGTH);
+        }
+        
+        /**
+         * @return COMPLETED, or STOPPED when the application shut down first
+         */
+        private String execute(long offset) throws IOException {
+            long fileSize = input.size();
+            long windowBytes = mapWindowBytes / recordLength * recordLength;
+            log.info("Importing {} from byte {} of {}, {}-byte records", fileName, offset, fileSize, recordLength);
+            while (fileSize - offset >= DailyTransactionRecordParser.RECORD_LENGTH) {
+                long length = Math.min(windowBytes, fileSize - offset);
+                MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                // The last record of the file may come without its line terminator
+                int records = (int) ((length + recordLength - DailyTransactionRecordParser.RECORD_LENGTH) / recordLength);
+                for (int done = 0; done < records; ) {
+                    if (stopping) {
+                        log.info("Import of {} stopped at byte {}", fileName, offset + (long) done * recordLength);
+                        return STATUS_STOPPED;
+                    }
+                    int first = done;
+                    int count = Math.min(batchSize, records - first);
+                    Batch batch = batchTimer.record(() -> importBatch(window, first, count));
+                    done += count;
+                    checkpoint(Math.min(offset + (long) done * recordLength, fileSize), batch);
+                }
+                offset = Math.min(offset + (long) records * recordLength, fileSize);
+            }
+            if (offset < fileSize && !isBlank(offset, fileSize)) {
+                rejectTruncated(offset, fileSize);
+            }
+            log.info("Imported {}: {} records at {} records/s", fileName, runRecords, String.format("%.0f", recordsPerSecond()));
+            return STATUS_COMPLETED;
+        }
+        
+        private Batch importBatch(ByteBuffer window, int firstRecord, int count) {
+            Batch batch = new Batch();
+            rejectBuffer.clear();
+            List<TransactionCreateDTO> items = new ArrayList<>(count);
+            List<String> transactionIds = new ArrayList<>(count);
+            List<Integer> positions = new ArrayList<>(count);
+            Set<String> batchIds = new HashSet<>();
+            for (int record = firstRecord; record < firstRecord + count; record++) {
+                int position = record * recordLength;
+                batch.read++;
+                String transactionId = parser.transactionId(window, position);
+                TransactionCreateDTO item = parser.parse(window, position);
+                if (transactionId.isEmpty()) {
+                    reject(window, position, REASON_INVALID_RECORD, "DALYTRAN-ID is blank", batch);
+                } else if (item == null) {
+                    reject(window, position, REASON_INVALID_RECORD, parser.error(), batch);
+                } else if (!batchIds.add(transactionId)) {
+                    reject(window, position, REASON_DUPLICATE_ID, "Duplicate DALYTRAN-ID in file", batch);
+                } else {
+                    items.add(item);
+                    transactionIds.add(transactionId);
+                    positions.add(position);
+                }
+            }
+            
+            if (transactionIds.isEmpty()) {
+                return batch;
+            }
+            // Records posted by an earlier run of this file, before its last checkpoint was written
+            Set<String> posted = findImportedIds(transactionIds);
+            // IDs of other postings; posting them would fail the whole batch
+            Set<String> taken = new HashSet<>(transactionRepository.findExistingIds(transactionIds));
+            taken.addAll(transactionArchive.findExistingIds(transactionIds));
+            List<TransactionCreateDTO> kept = new ArrayList<>(items.size());
+            List<String> keptIds = new ArrayList<>(items.size());
+            List<Integer> keptPositions = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                String transactionId = transactionIds.get(i);
+                if (posted.contains(transactionId)) {
+                    batch.skipped++;
+                } else if (taken.contains(transactionId)) {
+                    reject(window, positions.get(i), REASON_DUPLICATE_ID, "Transaction ID already exists", batch);
+                } else if (isGeneratedId(transactionId)) {
+                    reject(window, positions.get(i), REASON_GENERATED_ID,
+                            "DALYTRAN-ID is in the range of generated transaction IDs", batch);
+                } else {
+                    kept.add(items.get(i));
+                    keptIds.add(transactionId);
+                    keptPositions.add(positions.get(i));
+                }
+            }
+            items = kept;
+            transactionIds = keptIds;
+            positions = keptPositions;
+            
+            if (!items.isEmpty()) {
+                for (TransactionBatchItemResultDTO result : transactionService.createTransactions(items, transactionIds, this::recordImported)) {
+                    if (TransactionBatchItemResultDTO.ACCEPTED.equals(result.getStatus())) {
+                        batch.posted++;
+                    } else {
+                        reject(window, positions.get(result.getIndex()),
+                                REASON_CODES.getOrDefault(result.getReason(), REASON_OTHER), result.getError(), batch);
+                    }
+                }
+            }
+            return batch;
+        }
+        
+        private Set<String> findImportedIds(List<String> transactionIds) {
+            String sql = "SELECT transaction_id FROM transaction_import_records WHERE file_name = ? AND transaction_id IN ("
+                    + String.join(", ", Collections.nCopies(transactionIds.size(), "?")) + ")";
+            List<Object> args = new ArrayList<>(transactionIds.size() + 1);
+            args.add(fileName);
+            args.addAll(transactionIds);
+            return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, args.toArray()));
+        }
+        
+        private void recordImported(List<String> transactionIds) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(INSERT_RECORD_SQL, transactionIds, transactionIds.size(), (statement, transactionId) -> {
+                statement.setString(1, fileName);
+                statement.setString(2, transactionId);
+                statement.setTimestamp(3, now);
+            });
+        }
+        
+        private void reject(ByteBuffer window, int position, int reasonCode, String description, Batch batch) {
+            batch.rejected++;
+            int start = rejectBuffer.position();
+            rejectBuffer.put(rejectBuffer.position(), window, position, DailyTransactionRecordParser.RECORD_LENGTH);
+            rejectBuffer.position(start + DailyTransactionRecordParser.RECORD_LENGTH);
+            putReason(reasonCode, description);
+        }
+        
+        private void rejectTruncated(long offset, long fileSize) throws IOException {
+            int length = (int) (fileSize - offset);
+            ByteBuffer tail = ByteBuffer.allocate(length);
+            input.read(tail, offset);
+            rejectBuffer.clear();
+            rejectBuffer.put(tail.flip());
+            while (rejectBuffer.position() < DailyTransactionRecordParser.RECORD_LENGTH) {
+                rejectBuffer.put((byte) ' ');
+            }
+            putReason(REASON_INVALID_RECORD, "Record is truncated");
+            Batch batch = new Batch();
+            batch.read = 1;
+            batch.rejected = 1;
+            checkpoint(fileSize, batch);
+        }
+        
+        private void putReason(int reasonCode, String description) {
+            rejectBuffer.put(String.format("%04d", reasonCode).getBytes(StandardCharsets.ISO_8859_1));
+            byte[] text = description.getBytes(StandardCharsets.ISO_8859_1);
+            int length = Math.min(text.length, REJECT_DESCRIPTION_LENGTH);
+            rejectBuffer.put(text, 0, length);
+            for (int i = length; i < REJECT_DESCRIPTION_LENGTH; i++) {
+                rejectBuffer.put((byte) ' ');
+            }
+            rejectBuffer.put((byte) '\n');
+        }
+        
+        /**
+         * Makes the batch's rejects durable, then commits the offset reached
+         */
+        private void checkpoint(long offset, Batch batch) throws IOException {
+            if (rejectBuffer.position() > 0) {
+                rejectBuffer.flip();
+                while (rejectBuffer.hasRemaining()) {
+                    rejects.write(rejectBuffer);
+                }
+                rejects.force(false);
+                rejectBuffer.clear();
+            }
+            runRecords += batch.read;
+            jdbcTemplate.update(CHECKPOINT_SQL, offset, batch.read, batch.posted, batch.rejected, batch.skipped,
+                    rejects.position(), recordsPerSecond(), Timestamp.valueOf(LocalDateTime.now()), fileName);
+            postedRecords.increment(batch.posted);
+            rejectedRecords.increment(batch.rejected);
+            skippedRecords.increment(batch.skipped);
+            log.debug("Import of {} at byte {}: {} posted, {} rejected, {} skipped", fileName, offset, batch.posted, batch.rejected, batch.skipped);
+        }
+        
+        private double recordsPerSecond() {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return seconds > 0 ? runRecords / seconds : 0.0;
+        }
+        
+        /**
+         * Whether the bytes after the last whole record are only line terminators or padding
+         */
+        private boolean isBlank(long offset, long fileSize) throws IOException {
+            ByteBuffer tail = ByteBuffer.allocate((int) (fileSize - offset));
+            input.read(tail, offset);
+            for (int i = 0; i < tail.position(); i++) {
+                byte b = tail.get(i);
+                if (b != ' ' && b != '\r' && b != '\n' && b != 0x1A) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * 350 bytes, plus the line terminator of the first record if the file has one
+     */
+    private static int recordLength(Path file) {
+        int length = DailyTransactionRecordParser.RECORD_LENGTH;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer terminator = ByteBuffer.allocate(2);
+            channel.read(terminator, length);
+            if (terminator.position() > 0 && terminator.get(0) == '\n') {
+                return length + 1;
+            }
+            if (terminator.position() > 1 && terminator.get(0) == '\r' && terminator.get(1) == '\n') {
+                return length + 2;
+            }
+            return length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read import file " + file.getFileName(), e);
+        }
+    }
+    
+    /**
+     * Whether the ID lies in the range the generator owns (16 digits up to transaction.id.max). Such
+     * an ID may be handed out later, by any instance, so it is never imported and the sequence is
+     * never moved for it.
+     */
+    private boolean isGeneratedId(String transactionId) {
+        if (transactionId.length() != TransactionIdGenerator.ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < transactionId.length(); i++) {
+            if (transactionId.charAt(i) < '0' || transactionId.charAt(i) > '9') {
+                return false;
+            }
+        }
+        long id = Long.parseLong(transactionId);
+        return id > 0 && id <= transactionIdGenerator.getMaxId();
+    }
+    
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read import file " + file.getFileName(), e);
+        }
+    }
+    
+    private void updateStatus(String fileName, String status, String errorMessage) {
+        jdbcTemplate.update("UPDATE transaction_imports SET status = ?, error_message = ?, updated_at = ? WHERE file_name = ?",
+                status, errorMessage, Timestamp.valueOf(LocalDateTime.now()), fileName);
+    }
+    
+    private Optional<ImportRow> findImport(String fileName) {
+        return jdbcTemplate.query(SELECT_IMPORT_SQL, (rs, row) -> new ImportRow(
+                new TransactionImportDTO(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getLong(5),
+                        rs.getLong(6), rs.getLong(7), rs.getLong(8), rs.getObject(9, Double.class), rs.getString(10)),
+                rs.getLong(11)), fileName).stream().findFirst();
+    }
+    
+    private static Counter recordCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("transactions.import.records")
+                .description("Daily transaction file records imported, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private record ImportRow(TransactionImportDTO status, long rejectBytes) {
+    }
+    
+    private static final class Batch {
+        private int read;
+        private int posted;
+        private int rejected;
+        private int skipped;
+    }
+}
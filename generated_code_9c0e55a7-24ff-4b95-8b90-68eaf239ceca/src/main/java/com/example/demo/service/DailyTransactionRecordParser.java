@@ -0,0 +1,186 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionCreateDTO;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * Reads the 350-byte fixed-width records of a CardDemo daily transaction file (DALYTRAN) straight
+ * from a mapped buffer. Numbers and timestamps are parsed from the bytes in place and text fields
+ * are decoded through one reused scratch array, so a record costs only the objects it becomes.
+ * Not thread-safe: one per import.
+ *
+ * <pre>
+ * DALYTRAN-ID             X(16)     DALYTRAN-MERCHANT-ID    9(09)
+ * DALYTRAN-TYPE-CD        X(02)     DALYTRAN-MERCHANT-NAME  X(50)
+ * DALYTRAN-CAT-CD         9(04)     DALYTRAN-MERCHANT-CITY  X(50)
+ * DALYTRAN-SOURCE         X(10)     DALYTRAN-MERCHANT-ZIP   X(10)
+ * DALYTRAN-DESC           X(100)    DALYTRAN-CARD-NUM       X(16)
+ * DALYTRAN-AMT            S9(09)V99 DALYTRAN-ORIG-TS        X(26)
+ *                                   DALYTRAN-PROC-TS        X(26)
+ *                                   FILLER                  X(20)
+ * </pre>
+ */
+final class DailyTransactionRecordParser {
+    
+    static final int RECORD_LENGTH = 350;
+    
+    private static final int ID = 0;
+    private static final int TYPE_CODE = 16;
+    private static final int CATEGORY_CODE = 18;
+    private static final int SOURCE = 22;
+    private static final int DESCRIPTION = 32;
+    private static final int AMOUNT = 132;
+    private static final int MERCHANT_ID = 143;
+    private static final int MERCHANT_NAME = 152;
+    private static final int MERCHANT_CITY = 202;
+    private static final int MERCHANT_ZIP = 252;
+    private static final int CARD_NUMBER = 262;
+    private static final int ORIGINAL_TIMESTAMP = 278;
+    
+    private static final int AMOUNT_LENGTH = 11;
+    
+    private final byte[] scratch = new byte[100];
+    private String error;
+    
+    /**
+     * Parses the record starting at position
+     *
+     * @return the transaction, or null when the record is malformed; error() then tells why
+     */
+    TransactionCreateDTO parse(ByteBuffer buffer, int position) {
+        error = null;
+        int categoryCode = (int) number(buffer, position + CATEGORY_CODE, 4, "DALYTRAN-CAT-CD");
+        long merchantId = number(buffer, position + MERCHANT_ID, 9, "DALYTRAN-MERCHANT-ID");
+        BigDecimal amount = amount(buffer, position + AMOUNT);
+        LocalDateTime originalTimestamp = timestamp(buffer, position + ORIGINAL_TIMESTAMP, "DALYTRAN-ORIG-TS");
+        if (error != null) {
+            return null;
+        }
+        // Records in the file have been authorized upstream, so they arrive confirmed
+        return new TransactionCreateDTO(
+                text(buffer, position + CARD_NUMBER, 16),
+                text(buffer, position + TYPE_CODE, 2),
+                categoryCode,
+                text(buffer, position + SOURCE, 10),
+                text(buffer, position + DESCRIPTION, 100),
+                amount,
+                merchantId,
+                text(buffer, position + MERCHANT_NAME, 50),
+                text(buffer, position + MERCHANT_CITY, 50),
+                text(buffer, position + MERCHANT_ZIP, 10),
+                originalTimestamp,
+                "Y");
+    }
+    
+    /**
+     * @return DALYTRAN-ID of the record at position, or an empty string when it is blank
+     */
+    String transactionId(ByteBuffer buffer, int position) {
+        return text(buffer, position + ID, 16);
+    }
+    
+    /**
+     * @return why the last parse() returned null
+     */
+    String error() {
+        return error;
+    }
+    
+    /**
+     * Decodes a space-padded text field, without its leading and trailing spaces
+     */
+    private String text(ByteBuffer buffer, int position, int length) {
+        buffer.get(position, scratch, 0, length);
+        int start = 0;
+        int end = length;
+        while (end > 0 && scratch[end - 1] == ' ') {
+            end--;
+        }
+        while (start < end && scratch[start] == ' ') {
+            start++;
+        }
+        return new String(scratch, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+    
+    private long number(ByteBuffer buffer, int position, int length, String field) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = buffer.get(position + i) - '0';
+            if (digit < 0 || digit > 9) {
+                fail(field + " is not numeric");
+                return 0;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    /**
+     * S9(09)V99 in display format: eleven digits with an implied decimal point and the sign
+     * overpunched on the last digit ({, A-I positive; }, J-R negative). A plain last digit or a
+     * leading +/- in place of the first digit is accepted as well.
+     */
+    private BigDecimal amount(ByteBuffer buffer, int position) {
+        boolean negative = false;
+        long cents = 0;
+        for (int i = 0; i < AMOUNT_LENGTH; i++) {
+            int b = buffer.get(position + i);
+            int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (i == 0 && (b == '-' || b == '+')) {
+                negative = b == '-';
+                continue;
+            } else if (i == AMOUNT_LENGTH - 1 && b == '{') {
+                digit = 0;
+            } else if (i == AMOUNT_LENGTH - 1 && b >= 'A' && b <= 'I') {
+                digit = b - 'A' + 1;
+            } else if (i == AMOUNT_LENGTH - 1 && b == '}') {
+                digit = 0;
+                negative = true;
+            } else if (i == AMOUNT_LENGTH - 1 && b >= 'J' && b <= 'R') {
+                digit = b - 'J' + 1;
+                negative = true;
+            } else {
+                fail("DALYTRAN-AMT is not numeric");
+                return null;
+            }
+            cents = cents * 10 + digit;
+        }
+        return BigDecimal.valueOf(negative ? -cents : cents, 2);
+    }
+    
+    /**
+     * yyyy-MM-dd-HH.mm.ss.ffffff (DB2) or yyyy-MM-dd HH:mm:ss.ffffff
+     */
+    private LocalDateTime timestamp(ByteBuffer buffer, int position, String field) {
+        int year = (int) number(buffer, position, 4, field);
+        int month = (int) number(buffer, position + 5, 2, field);
+        int day = (int) number(buffer, position + 8, 2, field);
+        int hour = (int) number(buffer, position + 11, 2, field);
+        int minute = (int) number(buffer, position + 14, 2, field);
+        int second = (int) number(buffer, position + 17, 2, field);
+        int micros = (int) number(buffer, position + 20, 6, field);
+        if (error != null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, micros * 1000);
+        } catch (DateTimeException e) {
+            fail(field + " is not a valid timestamp");
+            return null;
+        }
+    }
+    
+    private void fail(String message) {
+        // Report the first problem of the record
+        if (error == null) {
+            error = message;
+        }
+    }
+}
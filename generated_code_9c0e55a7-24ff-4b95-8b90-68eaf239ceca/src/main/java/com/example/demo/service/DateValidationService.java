@@ -3,18 +3,31 @@ package com.example.demo.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.text.ParsePosition;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
 public class DateValidationService {
     
+    public static final String DEFAULT_FORMAT = "yyyy-MM-dd";
+    
+    private static final int DEFAULT_FORMAT_LENGTH = 10;
+    
+    // Compiled formatters by pattern; patterns come from code, so the map stays small
+    private final Map<String, DateTimeFormatter> formatters = new ConcurrentHashMap<>();
+    
     /**
      * Validates a date string against a specified format
      * Based on CSUTLDTC.cbl date validation utility
-     * 
+     *
      * @param dateString The date string to validate
      * @param format The expected format (e.g., "yyyy-MM-dd")
      * @return true if the date is valid, false otherwise
@@ -22,38 +35,75 @@ public class DateValidationService {
     public boolean validateDate(String dateString, String format) {
         log.debug("Validating date: {} with format: {}", dateString, format);
         
-        if (dateString == null || dateString.trim().isEmpty()) {
+        if (dateString == null || dateString.isBlank()) {
             log.warn("Date validation failed: Insufficient data");
             return false;
         }
         
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
-            LocalDate.parse(dateString, formatter);
-            log.debug("Date validation successful for: {}", dateString);
-            return true;
-        } catch (DateTimeParseException e) {
-            log.warn("Date validation failed for: {} - {}", dateString, e.getMessage());
-            return false;
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid date format pattern: {} - {}", format, e.getMessage());
+        if (parse(dateString, format) == null) {
+            log.warn("Date validation failed for: {} with format: {}", dateString, format);
             return false;
         }
+        log.debug("Date validation successful for: {}", dateString);
+        return true;
     }
     
     /**
      * Validates a date string with default format yyyy-MM-dd
-     * 
+     *
      * @param dateString The date string to validate
      * @return true if the date is valid, false otherwise
      */
     public boolean validateDate(String dateString) {
-        return validateDate(dateString, "yyyy-MM-dd");
+        return validateDate(dateString, DEFAULT_FORMAT);
+    }
+    
+    /**
+     * Validates a date that is already parsed, without formatting it back to text.
+     * Gives the same answer as validateDate(date.toString()): only years before 1 are rejected.
+     *
+     * @param date The date to validate
+     * @return true if the date is valid, false otherwise
+     */
+    public boolean validateDate(LocalDate date) {
+        if (date == null) {
+            log.warn("Date validation failed: Insufficient data");
+            return false;
+        }
+        if (date.getYear() < 1) {
+            log.warn("Date validation failed for: {}", date);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Validates many date strings against one format, e.g. the records of a batch ingest.
+     * Failures are logged once as a summary instead of once per record.
+     *
+     * @param dateStrings The date strings to validate
+     * @param format The expected format
+     * @return one flag per input, true where the date is valid
+     */
+    public boolean[] validateAll(List<String> dateStrings, String format) {
+        boolean[] valid = new boolean[dateStrings.size()];
+        int invalid = 0;
+        for (int i = 0; i < valid.length; i++) {
+            String dateString = dateStrings.get(i);
+            valid[i] = dateString != null && !dateString.isBlank() && parse(dateString, format) != null;
+            if (!valid[i]) {
+                invalid++;
+            }
+        }
+        if (invalid > 0) {
+            log.warn("Date validation failed for {} of {} dates with format: {}", invalid, valid.length, format);
+        }
+        return valid;
     }
     
     /**
      * Validates that a date is within a valid range
-     * 
+     *
      * @param dateString The date string to validate
      * @param format The expected format
      * @param minDate The minimum allowed date
@@ -61,21 +111,110 @@ public class DateValidationService {
      * @return true if the date is valid and within range, false otherwise
      */
     public boolean validateDateInRange(String dateString, String format, LocalDate minDate, LocalDate maxDate) {
-        if (!validateDate(dateString, format)) {
+        if (dateString == null || dateString.isBlank()) {
+            log.warn("Date validation failed: Insufficient data");
+            return false;
+        }
+        
+        LocalDate date = parse(dateString, format);
+        if (date == null) {
+            log.warn("Date validation failed for: {} with format: {}", dateString, format);
             return false;
         }
+        return isInRange(date, minDate, maxDate);
+    }
+    
+    /**
+     * Validates that an already parsed date is valid and within a range
+     */
+    public boolean validateDateInRange(LocalDate date, LocalDate minDate, LocalDate maxDate) {
+        return validateDate(date) && isInRange(date, minDate, maxDate);
+    }
+    
+    private boolean isInRange(LocalDate date, LocalDate minDate, LocalDate maxDate) {
+        boolean inRange = !date.isBefore(minDate) && !date.isAfter(maxDate);
+        if (!inRange) {
+            log.warn("Date {} is outside valid range [{}, {}]", date, minDate, maxDate);
+        }
+        return inRange;
+    }
+    
+    /**
+     * Parses the date the way LocalDate.parse(dateString, DateTimeFormatter.ofPattern(format)) does,
+     * but returns null instead of throwing when the input is invalid
+     */
+    private LocalDate parse(String dateString, String format) {
+        if (DEFAULT_FORMAT.equals(format)) {
+            // Four or more year digits, two dashes and two-digit month and day: anything shorter can't match,
+            // and a 10-character match has exactly four year digits, which parseDefaultFormat covers
+            if (dateString.length() < DEFAULT_FORMAT_LENGTH) {
+                return null;
+            }
+            if (dateString.length() == DEFAULT_FORMAT_LENGTH) {
+                return parseDefaultFormat(dateString);
+            }
+        }
         
+        DateTimeFormatter formatter = formatter(format);
+        if (formatter == null) {
+            return null;
+        }
+        // parseUnresolved reports syntax errors through the position, so bad input costs no exception
+        ParsePosition position = new ParsePosition(0);
+        if (formatter.parseUnresolved(dateString, position) == null || position.getIndex() != dateString.length()) {
+            return null;
+        }
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
-            LocalDate date = LocalDate.parse(dateString, formatter);
-            
-            boolean inRange = !date.isBefore(minDate) && !date.isAfter(maxDate);
-            if (!inRange) {
-                log.warn("Date {} is outside valid range [{}, {}]", dateString, minDate, maxDate);
+            return LocalDate.parse(dateString, formatter);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * yyyy-MM-dd parser that throws nothing and allocates only the result, with the formatter's SMART resolution: year 0 is rejected,
+     * any day from 1 to 31 is accepted and moved back to the last day of shorter months
+     */
+    private static LocalDate parseDefaultFormat(String text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        return LocalDate.of(year, month, Math.min(day, Month.of(month).length(Year.isLeap(year))));
+    }
+    
+    /**
+     * @return the value of the ASCII digits in [from, to), or -1 if any character is not a digit
+     */
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
             }
-            return inRange;
-        } catch (DateTimeParseException e) {
-            return false;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+    
+    private DateTimeFormatter formatter(String format) {
+        DateTimeFormatter formatter = formatters.get(format);
+        if (formatter != null) {
+            return formatter;
+        }
+        try {
+            formatter = DateTimeFormatter.ofPattern(format);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid date format pattern: {} - {}", format, e.getMessage());
+            return null;
         }
+        formatters.putIfAbsent(format, formatter);
+        return formatter;
     }
 }
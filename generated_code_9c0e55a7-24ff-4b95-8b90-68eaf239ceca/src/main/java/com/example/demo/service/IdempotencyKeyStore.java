@@ -0,0 +1,242 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionCreateDTO;
+import com.example.demo.dto.TransactionDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Remembers which transaction was posted under each Idempotency-Key, so a retried request gets
+ * the original transaction back instead of posting it again. Keys are recorded in
+ * idempotency_keys in the posting's own database transaction, so a key exists exactly when its
+ * transaction does. The most recent keys are also kept in memory with their TransactionDTO, and a
+ * retry that arrives while the original is still being posted waits for its outcome: retries
+ * answered either way cost no database work. Keys are kept for the configured TTL.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyStore {
+    
+    /**
+     * The transaction of a request, and whether an earlier request with the same key posted it
+     */
+    public record Outcome(TransactionDTO transaction, boolean replayed) {
+    }
+    
+    static final String CACHE_NAME = "idempotencyKeys";
+    static final int MAX_KEY_LENGTH = 64;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, Posting> cache;
+    private final Duration ttl;
+    private final Duration purgeInterval;
+    private final Counter memoryReplays;
+    private final Counter inFlightReplays;
+    private final Counter databaseReplays;
+    
+    // Requests being posted on this instance, by key
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private ScheduledExecutorService purger;
+    
+    public IdempotencyKeyStore(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${transaction.idempotency.ttl:24h}") Duration ttl,
+                               @Value("${transaction.idempotency.cache-size:50000}") long cacheSize,
+                               @Value("${transaction.idempotency.purge-interval:10m}") Duration purgeInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.purgeInterval = purgeInterval;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.memoryReplays = replayCounter(meterRegistry, "memory");
+        this.inFlightReplays = replayCounter(meterRegistry, "in_flight");
+        this.databaseReplays = replayCounter(meterRegistry, "database");
+    }
+    
+    @PostConstruct
+    public void start() {
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-key-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = purgeInterval.toMillis();
+        purger.scheduleWithFixedDelay(this::purgeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        purger.shutdownNow();
+    }
+    
+    /**
+     * Hash of everything that defines a posting request, to tell a retry from a reused key
+     */
+    static long fingerprint(TransactionCreateDTO request) {
+        String canonical = String.join("|", request.getCardNumber(), request.getTypeCode(),
+                String.valueOf(request.getCategoryCode()), request.getSource(), request.getDescription(),
+                request.getAmount() == null ? null : request.getAmount().stripTrailingZeros().toPlainString(),
+                String.valueOf(request.getMerchantId()), request.getMerchantName(), request.getMerchantCity(),
+                request.getMerchantZip(), String.valueOf(request.getOriginalTimestamp()), request.getConfirmation());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Posts a request at most once per key
+     *
+     * @param fingerprint fingerprint() of the request
+     * @param posting Posts the request, calling record() in its database transaction
+     * @param loader Reads a posted transaction by ID
+     * @return the transaction posted, now or by an earlier request with the same key (replayed)
+     */
+    public Outcome execute(String key, long fingerprint, Supplier<TransactionDTO> posting, Function<String, TransactionDTO> loader) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters...");
+        }
+        Posting cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return replay(key, cached, fingerprint, memoryReplays);
+        }
+        
+        InFlight mine = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkFingerprint(running.fingerprint(), fingerprint);
+            inFlightReplays.increment();
+            log.info("Idempotency-Key {} is being posted, waiting for the outcome", key);
+            try {
+                return new Outcome(running.result().join(), true);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Outcome outcome = postOnce(key, fingerprint, posting, loader);
+            mine.result().complete(outcome.transaction());
+            return outcome;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+    
+    /**
+     * Records the key of a posting; must run in the posting's database transaction
+     */
+    public void record(String key, long fingerprint, String transactionId) {
+        jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, request_hash, transaction_id, created_at) VALUES (?, ?, ?, ?)",
+                key, fingerprint, transactionId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+    
+    /**
+     * Deletes the keys older than the TTL
+     *
+     * @return the number of keys deleted
+     */
+    public int purge() {
+        int purged = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(ttl)));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+        return purged;
+    }
+    
+    private Outcome postOnce(String key, long fingerprint, Supplier<TransactionDTO> posting, Function<String, TransactionDTO> loader) {
+        Optional<Posting> stored = find(key, loader);
+        if (stored.isPresent()) {
+            return replay(key, stored.get(), fingerprint, databaseReplays);
+        }
+        try {
+            TransactionDTO transaction = posting.get();
+            cache.put(key, new Posting(fingerprint, transaction));
+            return new Outcome(transaction, false);
+        } catch (DuplicateKeyException e) {
+            // Another instance posted under the same key since the lookup; its posting was committed first
+            return find(key, loader)
+                    .map(posted -> replay(key, posted, fingerprint, databaseReplays))
+                    .orElseThrow(() -> e);
+        }
+    }
+    
+    private Optional<Posting> find(String key, Function<String, TransactionDTO> loader) {
+        List<Posting> stored = jdbcTemplate.query("SELECT request_hash, transaction_id FROM idempotency_keys WHERE idempotency_key = ?",
+                (rs, row) -> new Posting(rs.getLong(1), loader.apply(rs.getString(2))), key);
+        stored.forEach(posting -> cache.put(key, posting));
+        return stored.stream().findFirst();
+    }
+    
+    private Outcome replay(String key, Posting posting, long fingerprint, Counter replays) {
+        checkFingerprint(posting.fingerprint(), fingerprint);
+        replays.increment();
+        log.info("Idempotency-Key {} already posted transaction {}", key, posting.transaction().getTransactionId());
+        return new Outcome(posting.transaction(), true);
+    }
+    
+    private static void checkFingerprint(long stored, long fingerprint) {
+        if (stored != fingerprint) {
+            throw new RuntimeException("Idempotency-Key was already used for a different transaction...");
+        }
+    }
+    
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            log.error("Idempotency key purge failed: {}", e.getMessage(), e);
+        }
+    }
+    
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("transactions.idempotent.replays")
+                .description("Retried postings answered with the transaction already posted under their Idempotency-Key")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+    
+    private record Posting(long fingerprint, TransactionDTO transaction) {
+    }
+    
+    private record InFlight(long fingerprint, CompletableFuture<TransactionDTO> result) {
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.demo.service;
+
+import com.example.demo.config.ReplicaRoutingDataSource;
+import com.example.demo.dto.InterestRunDTO;
+import com.example.demo.dto.TransactionBatchItemResultDTO;
+import com.example.demo.dto.TransactionCreateDTO;
+import com.example.demo.repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Charges the monthly interest of every account from its category balances, in the way of the
+ * CardDemo interest calculator CBACT04C: balance * annual rate / 12 per type and category, with
+ * rates from interest_rates. transaction_category_balances is split into account_id ranges that
+ * run in parallel; each range streams its rows in (account_id, type_code, category_code) order
+ * inside a read-only transaction on the primary, so the driver honours the fetch size, and posts
+ * the interest of every chunk of accounts through the batch posting path outside that
+ * transaction, so memory stays bounded by the fetch size and chunk size and postings happen in
+ * a deterministic order within a range. Amounts are computed in long cents. A run is started in
+ * the background and reports its progress through getRun. interest_runs keeps one row per run
+ * date, so a date is never charged twice; a FAILED run has posted part of its interest and needs review.
+ */
+@Service
+@Slf4j
+public class InterestCalculationEngine {
+    
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    static final String INTEREST_TYPE_CODE = "FE";
+    static final int INTEREST_CATEGORY_CODE = 4004;
+    
+    private static final String BALANCES_SQL = """
+            SELECT account_id, type_code, category_code, balance FROM transaction_category_balances
+            WHERE account_id >= ? AND account_id <= ? ORDER BY account_id, type_code, category_code""";
+    
+    private static final String UPDATE_RUN_SQL = """
+            UPDATE interest_runs SET status = ?, balance_rows = ?, accounts_charged = ?, accounts_rejected = ?,
+                total_interest = ?, updated_at = ? WHERE run_date = ?""";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate scanTemplate;
+    private final TransactionTemplate postTemplate;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
+    private final TransactionService transactionService;
+    private final CardRepository cardRepository;
+    private final CategoryBalanceWriteBehind categoryBalanceWriteBehind;
+    private final int partitionCount;
+    private final int parallelism;
+    private final int chunkSize;
+    private final Timer runTimer;
+    private final Counter balanceRows;
+    
+    // Run date being calculated by this instance, and its totals so far
+    private final AtomicReference<LocalDate> running = new AtomicReference<>();
+    private volatile RunTotals runningTotals;
+    private ExecutorService runner;
+    
+    public InterestCalculationEngine(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                     TransactionService transactionService,
+                                     CardRepository cardRepository,
+                                     CategoryBalanceWriteBehind categoryBalanceWriteBehind,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${billing.interest.partitions:16}") int partitionCount,
+                                     @Value("${billing.interest.parallelism:4}") int parallelism,
+                                     @Value("${billing.interest.chunk-size:500}") int chunkSize,
+                                     @Value("${billing.interest.fetch-size:1000}") int fetchSize) {
+        if (partitionCount < 1 || parallelism < 1 || chunkSize < 1 || fetchSize < 1) {
+            throw new IllegalArgumentException("billing.interest.partitions, parallelism, chunk-size and fetch-size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.scanTemplate = new TransactionTemplate(transactionManager);
+        this.scanTemplate.setReadOnly(true);
+        // Postings made while a range is scanned must not join the read-only scan transaction
+        this.postTemplate = new TransactionTemplate(transactionManager);
+        this.postTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+        this.transactionService = transactionService;
+        this.cardRepository = cardRepository;
+        this.categoryBalanceWriteBehind = categoryBalanceWriteBehind;
+        this.partitionCount = partitionCount;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.runTimer = Timer.builder("billing.interest.run")
+                .description("Duration of interest calculation runs")
+                .register(meterRegistry);
+        this.balanceRows = Counter.builder("billing.interest.balance.rows")
+                .description("Category balance rows read by interest calculation")
+                .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "interest-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        runner.shutdown();
+        try {
+            runner.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Starts calculating and posting the monthly interest of all accounts in the background
+     *
+     * @param runDate Date of the interest transactions; each date can be charged once
+     * @return the run as started, RUNNING
+     */
+    public InterestRunDTO run(LocalDate runDate) {
+        if (!running.compareAndSet(null, runDate)) {
+            throw new RuntimeException("Interest calculation is already running for " + running.get() + "...");
+        }
+        RunTotals totals = new RunTotals();
+        try {
+            jdbcTemplate.update("INSERT INTO interest_runs (run_date, status, created_at, updated_at) VALUES (?, ?, ?, ?)",
+                    Date.valueOf(runDate), STATUS_RUNNING, Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()));
+            runningTotals = totals;
+            runner.execute(() -> {
+                try {
+                    runTimer.record(() -> calculate(runDate, totals));
+                } finally {
+                    running.set(null);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            running.set(null);
+            throw new RuntimeException("Interest has already been calculated for " + runDate + "...");
+        } catch (RuntimeException e) {
+            running.set(null);
+            throw e;
+        }
+        return getRun(runDate);
+    }
+    
+    /**
+     * @return the totals of a finished run, or the totals so far of a run still in progress
+     */
+    public InterestRunDTO getRun(LocalDate runDate) {
+        RunTotals totals = runningTotals;
+        if (runDate.equals(running.get()) && totals != null) {
+            return totals.toRun(runDate, STATUS_RUNNING);
+        }
+        List<InterestRunDTO> runs = jdbcTemplate.query(
+                "SELECT status, balance_rows, accounts_charged, accounts_rejected, total_interest FROM interest_runs WHERE run_date = ?",
+                (rs, row) -> new InterestRunDTO(runDate, rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getBigDecimal(5)),
+                Date.valueOf(runDate));
+        if (runs.isEmpty()) {
+            throw new RuntimeException("Interest run NOT found...");
+        }
+        return runs.get(0);
+    }
+    
+    private void calculate(LocalDate runDate, RunTotals totals) {
+        RuntimeException failure = null;
+        try {
+            // Buffered category deltas must be in the table before it is read
+            if (categoryBalanceWriteBehind.isEnabled()) {
+                categoryBalanceWriteBehind.flush();
+            }
+            Map<Long, Integer> rates = loadRates();
+            List<AccountRanges.Range> ranges = AccountRanges.split(jdbcTemplate, partitionCount);
+            log.info("Calculating interest for {}: {} rates, {} account ranges, {} in parallel", runDate, rates.size(), ranges.size(), parallelism);
+            
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<?>> tasks = ranges.stream()
+                        .<ForkJoinTask<?>>map(range -> pool.submit(() -> calculateRange(runDate, range, rates, totals)))
+                        .toList();
+                // Wait for every range, so the totals recorded below include all interest already posted
+                for (ForkJoinTask<?> task : tasks) {
+                    try {
+                        task.join();
+                    } catch (RuntimeException e) {
+                        log.error("Interest calculation for {} failed: {}", runDate, e.getMessage(), e);
+                        failure = failure == null ? e : failure;
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        
+        InterestRunDTO run = totals.toRun(runDate, failure == null ? STATUS_COMPLETED : STATUS_FAILED);
+        try {
+            jdbcTemplate.update(UPDATE_RUN_SQL, run.getStatus(), run.getBalanceRows(), run.getAccountsCharged(), run.getAccountsRejected(),
+                    run.getTotalInterest(), Timestamp.valueOf(LocalDateTime.now()), Date.valueOf(runDate));
+        } catch (RuntimeException e) {
+            log.error("Cannot record the interest run of {} as {}: {}", runDate, run.getStatus(), e.getMessage(), e);
+        }
+        if (failure != null) {
+            log.error("Interest calculation for {} failed after posting {}: {}", runDate, run.getTotalInterest(), failure.getMessage(), failure);
+            return;
+        }
+        log.info("Interest for {}: {} accounts charged {}, {} rejected, {} balance rows", runDate, run.getAccountsCharged(),
+                run.getTotalInterest(), run.getAccountsRejected(), run.getBalanceRows());
+    }
+    
+    private void calculateRange(LocalDate runDate, AccountRanges.Range range, Map<Long, Integer> rates, RunTotals totals) {
+        List<long[]> chunk = new ArrayList<>(chunkSize);
+        InterestCalculator calculator = new InterestCalculator(rates, (accountId, interestCents) -> {
+            chunk.add(new long[]{accountId, interestCents});
+            if (chunk.size() >= chunkSize) {
+                post(runDate, chunk, totals);
+                chunk.clear();
+            }
+        });
+        // Balances were just flushed to the primary: a lagging replica would charge stale balances
+        ReplicaRoutingDataSource routing = replicaRoutingDataSource.getIfAvailable();
+        if (routing != null) {
+            routing.pinToPrimary();
+        }
+        try {
+            scanTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(BALANCES_SQL, rs -> {
+                calculator.accept(rs.getLong(1), InterestCalculator.rateKey(rs.getString(2), rs.getInt(3)),
+                        rs.getBigDecimal(4).movePointRight(2).longValueExact());
+            }, range.firstAccountId(), range.lastAccountId()));
+        } finally {
+            if (routing != null) {
+                routing.unpin();
+            }
+        }
+        calculator.finish();
+        if (!chunk.isEmpty()) {
+            post(runDate, chunk, totals);
+        }
+        totals.rows.add(calculator.rows());
+        balanceRows.increment(calculator.rows());
+    }
+    
+    /**
+     * Posts the interest of a chunk of accounts as one batch, to the lowest card number of each account
+     *
+     * @param chunk [accountId, interestCents] pairs in account order
+     */
+    private void post(LocalDate runDate, List<long[]> chunk, RunTotals totals) {
+        Map<Long, String> cards = cardRepository.findPrimaryCardNumbers(chunk.stream().map(item -> item[0]).toList()).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (String) row[1]));
+        List<TransactionCreateDTO> postings = new ArrayList<>(chunk.size());
+        List<Long> amounts = new ArrayList<>(chunk.size());
+        for (long[] item : chunk) {
+            String cardNumber = cards.get(item[0]);
+            if (cardNumber == null) {
+                log.warn("Interest of account {} not posted: account has no card", item[0]);
+                totals.rejected.increment();
+                continue;
+            }
+            postings.add(new TransactionCreateDTO(cardNumber, INTEREST_TYPE_CODE, INTEREST_CATEGORY_CODE, "SYSTEM",
+                    "Int. for a/c " + item[0], BigDecimal.valueOf(item[1], 2), 0L, "Interest Charge", "System", "00000",
+                    runDate.atStartOfDay(), "Y"));
+            amounts.add(item[1]);
+        }
+        if (postings.isEmpty()) {
+            return;
+        }
+        
+        List<TransactionBatchItemResultDTO> results = postTemplate.execute(status -> transactionService.createTransactions(postings));
+        for (TransactionBatchItemResultDTO result : results) {
+            if (TransactionBatchItemResultDTO.ACCEPTED.equals(result.getStatus())) {
+                totals.charged.increment();
+                totals.interestCents.add(amounts.get(result.getIndex()));
+            } else {
+                log.warn("Interest of {} rejected: {}", postings.get(result.getIndex()).getDescription(), result.getError());
+                totals.rejected.increment();
+            }
+        }
+    }
+    
+    private Map<Long, Integer> loadRates() {
+        Map<Long, Integer> rates = new HashMap<>();
+        jdbcTemplate.query("SELECT type_code, category_code, annual_rate_bps FROM interest_rates", rs -> {
+            rates.put(InterestCalculator.rateKey(rs.getString(1), rs.getInt(2)), rs.getInt(3));
+        });
+        return rates;
+    }
+    
+    private static final class RunTotals {
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder charged = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder interestCents = new LongAdder();
+        
+        private InterestRunDTO toRun(LocalDate runDate, String status) {
+            return new InterestRunDTO(runDate, status, rows.sum(), charged.sum(), rejected.sum(),
+                    BigDecimal.valueOf(interestCents.sum(), 2));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Monthly interest of category balances in whole cents. Balances must arrive grouped by account
+ * (ordered by account_id); each account's total is handed to the sink when the next account
+ * starts and at finish(). Rates are kept in sorted primitive arrays, so a row costs a binary
+ * search and two long multiplications, with no allocation. Not thread-safe: one per partition.
+ */
+final class InterestCalculator {
+    
+    // Basis points per year to a monthly fraction: rate / 10_000 / 12
+    private static final long MONTHLY_DIVISOR = 120_000;
+    
+    private final long[] rateKeys;
+    private final int[] ratesBps;
+    private final AccountInterestSink sink;
+    
+    private boolean hasAccount;
+    private long accountId;
+    private long accountInterestCents;
+    private long rows;
+    
+    /**
+     * @param ratesBps Annual rate in basis points by rateKey(typeCode, categoryCode)
+     */
+    InterestCalculator(Map<Long, Integer> ratesBps, AccountInterestSink sink) {
+        this.rateKeys = ratesBps.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        this.ratesBps = new int[rateKeys.length];
+        for (int i = 0; i < rateKeys.length; i++) {
+            this.ratesBps[i] = ratesBps.get(rateKeys[i]);
+        }
+        this.sink = sink;
+    }
+    
+    /**
+     * Packs a type code of up to two characters and a category code into one key
+     */
+    static long rateKey(String typeCode, int categoryCode) {
+        long type = typeCode.charAt(0);
+        if (typeCode.length() > 1) {
+            type = type << 16 | typeCode.charAt(1);
+        }
+        return type << 32 | (categoryCode & 0xFFFF_FFFFL);
+    }
+    
+    /**
+     * Monthly interest of a balance, rounded half away from zero like COBOL ROUNDED
+     */
+    static long monthlyInterestCents(long balanceCents, int annualRateBps) {
+        long scaled = Math.multiplyExact(balanceCents, (long) annualRateBps);
+        long cents = (Math.abs(scaled) + MONTHLY_DIVISOR / 2) / MONTHLY_DIVISOR;
+        return scaled < 0 ? -cents : cents;
+    }
+    
+    void accept(long accountId, long rateKey, long balanceCents) {
+        rows++;
+        if (!hasAccount || accountId != this.accountId) {
+            flushAccount();
+            this.accountId = accountId;
+            this.hasAccount = true;
+        }
+        int rate = Arrays.binarySearch(rateKeys, rateKey);
+        if (rate >= 0) {
+            accountInterestCents = Math.addExact(accountInterestCents, monthlyInterestCents(balanceCents, ratesBps[rate]));
+        }
+    }
+    
+    void finish() {
+        flushAccount();
+        hasAccount = false;
+    }
+    
+    long rows() {
+        return rows;
+    }
+    
+    private void flushAccount() {
+        if (hasAccount && accountInterestCents != 0) {
+            sink.accept(accountId, accountInterestCents);
+        }
+        accountInterestCents = 0;
+    }
+    
+    @FunctionalInterface
+    interface AccountInterestSink {
+        void accept(long accountId, long interestCents);
+    }
+}
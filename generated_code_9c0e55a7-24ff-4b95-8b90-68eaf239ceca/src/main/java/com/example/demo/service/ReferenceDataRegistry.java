@@ -0,0 +1,170 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.TransactionCategory;
+import com.example.demo.entity.TransactionType;
+import com.example.demo.repository.TransactionCategoryRepository;
+import com.example.demo.repository.TransactionTypeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable in-memory copy of the transaction_types and transaction_categories tables.
+ * Codes are validated and descriptions resolved without touching the database; lookups
+ * pack (typeCode, categoryCode) into a primitive long and probe an open-addressing table,
+ * so nothing is boxed or allocated per call. reload() swaps in a freshly read snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataRegistry {
+    
+    private final TransactionTypeRepository transactionTypeRepository;
+    private final TransactionCategoryRepository transactionCategoryRepository;
+    
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Point-in-time view of the registry, as reported by the referencedata actuator endpoint
+     */
+    public record Summary(int typeCount, int categoryCount, LocalDateTime loadedAt) {
+    }
+    
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+    
+    /**
+     * Reads the type and category tables again and swaps in the new snapshot
+     */
+    public Summary reload() {
+        List<TransactionType> types = transactionTypeRepository.findAll();
+        List<TransactionCategory> categories = transactionCategoryRepository.findAll();
+        
+        CodeTable typeTable = new CodeTable(types.size());
+        for (TransactionType type : types) {
+            typeTable.put(typeKey(type.getTypeCode()), type.getTypeDescription());
+        }
+        CodeTable categoryTable = new CodeTable(categories.size());
+        for (TransactionCategory category : categories) {
+            categoryTable.put(categoryKey(category.getTypeCode(), category.getCategoryCode()), category.getCategoryDescription());
+        }
+        
+        Snapshot loaded = new Snapshot(typeTable, categoryTable, new Summary(types.size(), categories.size(), LocalDateTime.now()));
+        snapshot = loaded;
+        log.info("Reference data loaded: {} transaction types, {} categories", types.size(), categories.size());
+        return loaded.summary();
+    }
+    
+    public Summary getSummary() {
+        return snapshot.summary();
+    }
+    
+    public boolean isValidType(String typeCode) {
+        return typeDescription(typeCode) != null;
+    }
+    
+    public boolean isValidCategory(String typeCode, int categoryCode) {
+        return categoryDescription(typeCode, categoryCode) != null;
+    }
+    
+    /**
+     * @return the description of the type, or null when the code is unknown
+     */
+    public String typeDescription(String typeCode) {
+        long key = typeKey(typeCode);
+        return key == 0 ? null : snapshot.types().get(key);
+    }
+    
+    /**
+     * @return the description of the category, or null when the pair is unknown
+     */
+    public String categoryDescription(String typeCode, int categoryCode) {
+        long key = categoryKey(typeCode, categoryCode);
+        return key == 0 ? null : snapshot.categories().get(key);
+    }
+    
+    /**
+     * Checks that the type code and the (type, category) pair exist
+     *
+     * @return the rejection message, or null when both codes are valid
+     */
+    public String validate(String typeCode, Integer categoryCode) {
+        if (!isValidType(typeCode)) {
+            return "Invalid transaction type code...";
+        }
+        if (categoryCode == null || !isValidCategory(typeCode, categoryCode)) {
+            return "Invalid transaction category code...";
+        }
+        return null;
+    }
+    
+    /**
+     * Packs a type code of one or two characters into the low 32 bits; 0 means not a valid code
+     */
+    private static long typeKey(String typeCode) {
+        if (typeCode == null || typeCode.isEmpty() || typeCode.length() > 2) {
+            return 0;
+        }
+        long key = typeCode.charAt(0);
+        if (typeCode.length() == 2) {
+            key = (key << 16) | typeCode.charAt(1);
+        }
+        return key;
+    }
+    
+    private static long categoryKey(String typeCode, int categoryCode) {
+        long typeKey = typeKey(typeCode);
+        return typeKey == 0 ? 0 : (typeKey << 32) | (categoryCode & 0xFFFFFFFFL);
+    }
+    
+    private record Snapshot(CodeTable types, CodeTable categories, Summary summary) {
+    }
+    
+    /**
+     * Linear-probing hash table from non-zero long keys to descriptions; key 0 marks an empty slot
+     */
+    private static final class CodeTable {
+        private final long[] keys;
+        private final String[] values;
+        private final int mask;
+        
+        private CodeTable(int expectedSize) {
+            // Keep the load factor at or below 0.5 so probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new String[capacity];
+            this.mask = capacity - 1;
+        }
+        
+        private void put(long key, String value) {
+            int slot = slot(key);
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+        
+        private String get(long key) {
+            int slot = slot(key);
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+        
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
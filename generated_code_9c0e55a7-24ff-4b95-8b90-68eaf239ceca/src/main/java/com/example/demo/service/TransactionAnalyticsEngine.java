@@ -0,0 +1,243 @@
+package com.example.demo.service;
+
+import com.example.demo.config.ReplicaRoutingDataSource;
+import com.example.demo.dto.TransactionAggregateDTO;
+import com.example.demo.entity.Transaction;
+import com.example.demo.service.TransactionColumnStore.Dimension;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory copy of every transaction, hot and archived, in a TransactionColumnStore,
+ * answering count/sum/average by day, type, category, merchant or account with a parallel scan
+ * instead of loading Transaction entities. The store is loaded at startup, before
+ * TransactionService can post, by a read-only scan of the primary with the configured fetch
+ * size, and postings are appended after they commit, so it sees each transaction exactly once.
+ * Postings made by other instances or outside TransactionService are not seen until the next restart.
+ */
+@Service
+@Slf4j
+public class TransactionAnalyticsEngine {
+    
+    private static final String LOAD_SQL = """
+            SELECT account_id, type_code, category_code, amount, merchant_id, merchant_name, original_timestamp
+            FROM transactions""";
+    
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate loadTemplate;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
+    private final TransactionArchive transactionArchive;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int parallelism;
+    private final TransactionColumnStore store = new TransactionColumnStore();
+    private ForkJoinPool workers;
+    
+    public TransactionAnalyticsEngine(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                      TransactionArchive transactionArchive,
+                                      ReferenceDataRegistry referenceDataRegistry,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${transaction.analytics.enabled:false}") boolean enabled,
+                                      @Value("${transaction.analytics.parallelism:0}") int parallelism,
+                                      @Value("${transaction.analytics.fetch-size:1000}") int fetchSize) {
+        if (parallelism < 0 || fetchSize < 1) {
+            throw new IllegalArgumentException("transaction.analytics.parallelism must not be negative and fetch-size must be at least 1");
+        }
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        // Drivers such as PostgreSQL only stream with the fetch size inside a transaction
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setReadOnly(true);
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+        this.transactionArchive = transactionArchive;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+    
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        workers = new ForkJoinPool(parallelism);
+        long started = System.nanoTime();
+        // A lagging replica would miss the latest postings, which are never appended later
+        ReplicaRoutingDataSource routing = replicaRoutingDataSource.getIfAvailable();
+        if (routing != null) {
+            routing.pinToPrimary();
+        }
+        try {
+            loadTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(LOAD_SQL, rs -> {
+                store.append(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getBigDecimal(4).movePointRight(2).longValueExact(),
+                        rs.getLong(5), rs.getString(6), (int) rs.getTimestamp(7).toLocalDateTime().toLocalDate().toEpochDay());
+            }));
+        } finally {
+            if (routing != null) {
+                routing.unpin();
+            }
+        }
+        int hot = store.rowCount();
+        try (Stream<Transaction> archived = transactionArchive.streamNewestFirst(TransactionArchive.Filter.all())) {
+            archived.forEach(this::append);
+        }
+        Gauge.builder("transactions.analytics.rows", store, TransactionColumnStore::rowCount)
+                .description("Transactions held by the in-memory analytics engine")
+                .register(meterRegistry);
+        log.info("Loaded {} transactions ({} archived) into the analytics engine in {} ms, {} scan partitions",
+                store.rowCount(), store.rowCount() - hot, (System.nanoTime() - started) / 1_000_000, parallelism);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Adds a posted transaction once its database transaction commits
+     */
+    public void record(Transaction transaction) {
+        recordAll(List.of(transaction));
+    }
+    
+    /**
+     * Adds posted transactions once their database transaction commits
+     */
+    public void recordAll(Collection<Transaction> transactions) {
+        if (!enabled || transactions.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactions.forEach(this::append);
+            return;
+        }
+        List<Transaction> posted = List.copyOf(transactions);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                posted.forEach(TransactionAnalyticsEngine.this::append);
+            }
+        });
+    }
+    
+    /**
+     * Transaction count, total and average amount per group, over all transactions of a date range
+     *
+     * @param groupBy DAY, TYPE, CATEGORY, MERCHANT or ACCOUNT
+     * @param startDate First day, inclusive, or null for no lower bound
+     * @param endDate Last day, inclusive, or null for no upper bound
+     * @param accountId Only transactions of this account, or null
+     * @param typeCode Only transactions of this type, or null
+     * @param limit Return at most this many groups, or null for all
+     * @return days and codes in ascending order; merchants and accounts by total amount, largest first
+     */
+    public List<TransactionAggregateDTO> aggregate(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                   Long accountId, String typeCode, Integer limit) {
+        if (!enabled) {
+            throw new RuntimeException("Transaction analytics is not enabled...");
+        }
+        Dimension dimension = dimension(groupBy);
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new RuntimeException("Start date must be before or equal to end date");
+        }
+        if (limit != null && limit < 1) {
+            throw new RuntimeException("Limit must be at least 1");
+        }
+        int fromDay = startDate == null ? Integer.MIN_VALUE : (int) startDate.toEpochDay();
+        int toDay = endDate == null ? Integer.MAX_VALUE : (int) endDate.toEpochDay();
+        
+        TransactionColumnStore.Totals totals = Timer.builder("transactions.analytics.query")
+                .description("Time to scan the analytics engine for one aggregation")
+                .tag("groupBy", dimension.name())
+                .register(meterRegistry)
+                .record(() -> store.aggregate(dimension, fromDay, toDay, typeCode, accountId, workers, parallelism));
+        
+        List<TransactionAggregateDTO> rows = new ArrayList<>();
+        for (int group = 0; group < totals.counts().length; group++) {
+            long count = totals.counts()[group];
+            if (count > 0) {
+                BigDecimal total = BigDecimal.valueOf(totals.sumCents()[group], 2);
+                TransactionAggregateDTO row = new TransactionAggregateDTO(null, null, count, total,
+                        total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_EVEN));
+                describe(row, dimension, group, totals.firstDay());
+                rows.add(row);
+            }
+        }
+        switch (dimension) {
+            case TYPE, CATEGORY -> rows.sort(Comparator.comparing(TransactionAggregateDTO::getKey));
+            case MERCHANT, ACCOUNT -> rows.sort(Comparator.comparing(TransactionAggregateDTO::getTotalAmount).reversed());
+            default -> {
+                // Day groups are already in date order
+            }
+        }
+        return limit != null && rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+    
+    private void append(Transaction transaction) {
+        store.append(transaction.getAccountId(), transaction.getTypeCode(), transaction.getCategoryCode(),
+                transaction.getAmount().movePointRight(2).longValueExact(), transaction.getMerchantId(),
+                transaction.getMerchantName(), (int) transaction.getOriginalTimestamp().toLocalDate().toEpochDay());
+    }
+    
+    private void describe(TransactionAggregateDTO row, Dimension dimension, int group, int firstDay) {
+        switch (dimension) {
+            case DAY -> row.setKey(LocalDate.ofEpochDay((long) firstDay + group).toString());
+            case TYPE -> {
+                String typeCode = store.typeCode(group);
+                row.setKey(typeCode);
+                row.setDescription(referenceDataRegistry.typeDescription(typeCode));
+            }
+            case CATEGORY -> {
+                TransactionColumnStore.CategoryKey category = store.category(group);
+                row.setKey(category.typeCode() + "/" + category.categoryCode());
+                row.setDescription(referenceDataRegistry.categoryDescription(category.typeCode(), category.categoryCode()));
+            }
+            case MERCHANT -> {
+                row.setKey(String.valueOf(store.merchantId(group)));
+                row.setDescription(store.merchantName(group));
+            }
+            case ACCOUNT -> row.setKey(String.valueOf(store.accountId(group)));
+        }
+    }
+    
+    private static Dimension dimension(String groupBy) {
+        for (Dimension value : Dimension.values()) {
+            if (value.name().equalsIgnoreCase(groupBy)) {
+                return value;
+            }
+        }
+        throw new RuntimeException("Group by must be DAY, TYPE, CATEGORY, MERCHANT or ACCOUNT");
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Transaction;
+import com.example.demo.service.TransactionArchiveSegment.Column;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the transactions table: transactions moved out by TransactionArchiveJob, kept in
+ * compressed columnar segment files under the archive directory, one directory per month. The
+ * segments in use are the ones registered in transaction_archive_segments; their footers are
+ * held in memory, so a query skips every segment whose timestamp range, transaction ID range or
+ * card/account Bloom filter rules it out without reading it. Decompressed columns are cached up
+ * to the configured size. Reads of the transactions table merge these results with their own
+ * (see merge()), hot rows first. Single instance only: the files are on local disk.
+ */
+@Component
+@Slf4j
+public class TransactionArchive {
+    
+    static final String CACHE_NAME = "archiveColumns";
+    
+    private static final String SELECT_SEGMENTS_SQL = "SELECT file_name FROM transaction_archive_segments ORDER BY file_name";
+    
+    private static final Comparator<Hit> NEWEST_FIRST = Comparator.comparingLong(Hit::originalTimestamp)
+            .thenComparing(Hit::transactionId)
+            .reversed();
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Path dir;
+    private final Cache<ColumnKey, byte[]> columnCache;
+    private final Counter segmentsPruned;
+    private final Counter segmentsScanned;
+    
+    // Published segments; replaced as a whole when a segment is added or removed
+    private volatile List<TransactionArchiveSegment> segments = List.of();
+    
+    public TransactionArchive(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${transaction.archive.dir:data/archive/transactions}") String dir,
+                              @Value("${transaction.archive.column-cache-size:64MB}") DataSize columnCacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.columnCache = Caffeine.newBuilder()
+                .maximumWeight(columnCacheSize.toBytes())
+                .weigher((ColumnKey key, byte[] column) -> column.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, columnCache, CACHE_NAME);
+        this.segmentsPruned = segmentCounter(meterRegistry, "pruned");
+        this.segmentsScanned = segmentCounter(meterRegistry, "scanned");
+        Gauge.builder("transactions.archive.rows", this, TransactionArchive::count)
+                .description("Transactions held in archive segments")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Filter of an archive query; null fields don't filter
+     *
+     * @param from Earliest originalTimestamp, inclusive
+     * @param until Latest originalTimestamp, exclusive
+     */
+    public record Filter(String cardNumber, Long accountId, LocalDateTime from, LocalDateTime until) {
+        
+        public static Filter all() {
+            return new Filter(null, null, null, null);
+        }
+        
+        public static Filter window(LocalDateTime from, LocalDateTime until) {
+            return new Filter(null, null, from, until);
+        }
+        
+        public static Filter card(String cardNumber, LocalDateTime from, LocalDateTime until) {
+            return new Filter(cardNumber, null, from, until);
+        }
+        
+        public static Filter account(Long accountId, LocalDateTime from, LocalDateTime until) {
+            return new Filter(null, accountId, from, until);
+        }
+    }
+    
+    /**
+     * Opens the registered segments. Files no registration refers to are left over from an
+     * archival that never committed; their rows are still in the transactions table, so they are removed.
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        Files.createDirectories(dir);
+        Set<String> registered = new HashSet<>(jdbcTemplate.queryForList(SELECT_SEGMENTS_SQL, String.class));
+        List<TransactionArchiveSegment> opened = new ArrayList<>();
+        for (String fileName : registered) {
+            try {
+                opened.add(TransactionArchiveSegment.open(dir, fileName));
+            } catch (IOException e) {
+                throw new IllegalStateException("Archive segment " + fileName + " is registered but cannot be read", e);
+            }
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                String fileName = dir.relativize(file).toString().replace('\\', '/');
+                if (!registered.contains(fileName)) {
+                    log.warn("Removing unregistered archive file {}", fileName);
+                    Files.delete(file);
+                }
+            }
+        }
+        segments = List.copyOf(opened);
+        log.info("Transaction archive in {}: {} segments, {} transactions", dir, opened.size(), count());
+    }
+    
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+    
+    /**
+     * @return the number of archived transactions
+     */
+    public long count() {
+        return segments.stream().mapToLong(TransactionArchiveSegment::rowCount).sum();
+    }
+    
+    public int segmentCount() {
+        return segments.size();
+    }
+    
+    public long sizeBytes() {
+        return segments.stream().mapToLong(TransactionArchiveSegment::fileSize).sum();
+    }
+    
+    public Optional<Transaction> findById(String transactionId) {
+        for (TransactionArchiveSegment segment : segments) {
+            if (!segment.mightContainId(transactionId)) {
+                continue;
+            }
+            segmentsScanned.increment();
+            byte[] ids = column(segment, Column.TRANSACTION_ID);
+            byte[] value = transactionId.getBytes(StandardCharsets.UTF_8);
+            for (int row = 0; row < segment.rowCount(); row++) {
+                if (segment.textEquals(ids, row, value)) {
+                    return Optional.of(segment.transaction(columns(segment), row));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * @return those of the transaction IDs that are archived
+     */
+    public Set<String> findExistingIds(Collection<String> transactionIds) {
+        Set<String> existing = new HashSet<>();
+        for (TransactionArchiveSegment segment : segments) {
+            Set<String> candidates = new HashSet<>();
+            for (String transactionId : transactionIds) {
+                if (segment.mightContainId(transactionId)) {
+                    candidates.add(transactionId);
+                }
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            segmentsScanned.increment();
+            byte[] ids = column(segment, Column.TRANSACTION_ID);
+            for (int row = 0; row < segment.rowCount(); row++) {
+                String transactionId = segment.text(ids, row);
+                if (candidates.contains(transactionId)) {
+                    existing.add(transactionId);
+                }
+            }
+        }
+        return existing;
+    }
+    
+    /**
+     * Newest-first transactions matching the filter, as ORDER BY originalTimestamp DESC, transactionId DESC
+     *
+     * @param olderThanTimestamp With olderThanId, return only rows before this position; null for none
+     */
+    public List<Transaction> findNewest(Filter filter, LocalDateTime olderThanTimestamp, String olderThanId, int limit) {
+        return find(filter, olderThanTimestamp, olderThanId, true, limit);
+    }
+    
+    /**
+     * Oldest-first transactions matching the filter, as ORDER BY originalTimestamp ASC, transactionId ASC
+     *
+     * @param newerThanTimestamp With newerThanId, return only rows after this position; null for none
+     */
+    public List<Transaction> findOldest(Filter filter, LocalDateTime newerThanTimestamp, String newerThanId, int limit) {
+        return find(filter, newerThanTimestamp, newerThanId, false, limit);
+    }
+    
+    public List<Transaction> findAll(Filter filter) {
+        return find(filter, null, null, true, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Streams the transactions matching the filter newest first, reading one month at a time,
+     * so memory use is bounded by the largest month rather than the whole window
+     */
+    public Stream<Transaction> streamNewestFirst(Filter filter) {
+        return segments.stream()
+                .map(TransactionArchiveSegment::month)
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .flatMap(month -> {
+                    LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+                    LocalDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+                    LocalDateTime from = filter.from() == null || filter.from().isBefore(monthStart) ? monthStart : filter.from();
+                    LocalDateTime until = filter.until() == null || filter.until().isAfter(monthEnd) ? monthEnd : filter.until();
+                    if (!from.isBefore(until)) {
+                        return Stream.empty();
+                    }
+                    return findAll(new Filter(filter.cardNumber(), filter.accountId(), from, until)).stream();
+                });
+    }
+    
+    /**
+     * Merges rows read from the transactions table with archived rows, both sorted by order,
+     * into the first limit rows of their union. A row found in both (read while it was being
+     * archived) is kept once.
+     */
+    public static <R> List<R> merge(List<R> hot, List<R> archived, Comparator<R> order, int limit) {
+        if (archived.isEmpty()) {
+            return hot.size() > limit ? hot.subList(0, limit) : hot;
+        }
+        List<R> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        Iterator<R> rows = merge(hot.iterator(), archived.iterator(), order);
+        while (merged.size() < limit && rows.hasNext()) {
+            merged.add(rows.next());
+        }
+        return merged;
+    }
+    
+    /**
+     * Lazily merges two sorted iterators, as merge() does for lists
+     */
+    public static <R> Iterator<R> merge(Iterator<R> hot, Iterator<R> archived, Comparator<R> order) {
+        return new Iterator<>() {
+            private R nextHot = hot.hasNext() ? hot.next() : null;
+            private R nextArchived = archived.hasNext() ? archived.next() : null;
+            
+            @Override
+            public boolean hasNext() {
+                return nextHot != null || nextArchived != null;
+            }
+            
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int comparison = nextHot == null ? 1 : nextArchived == null ? -1 : order.compare(nextHot, nextArchived);
+                R row;
+                if (comparison <= 0) {
+                    row = nextHot;
+                    nextHot = hot.hasNext() ? hot.next() : null;
+                    if (comparison == 0) {
+                        nextArchived = archived.hasNext() ? archived.next() : null;
+                    }
+                } else {
+                    row = nextArchived;
+                    nextArchived = archived.hasNext() ? archived.next() : null;
+                }
+                return row;
+            }
+        };
+    }
+    
+    Path dir() {
+        return dir;
+    }
+    
+    /**
+     * Makes a segment visible to queries. TransactionArchiveJob publishes a segment before
+     * deleting its rows from transactions commits, so a query never misses them in between.
+     */
+    synchronized void publish(TransactionArchiveSegment segment) {
+        List<TransactionArchiveSegment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        segments = List.copyOf(updated);
+    }
+    
+    synchronized void unpublish(TransactionArchiveSegment segment) {
+        List<TransactionArchiveSegment> updated = new ArrayList<>(segments);
+        updated.remove(segment);
+        segments = List.copyOf(updated);
+        for (Column column : Column.values()) {
+            columnCache.invalidate(new ColumnKey(segment.fileName(), column));
+        }
+    }
+    
+    private List<Transaction> find(Filter filter, LocalDateTime seekTimestamp, String seekId, boolean newestFirst, int limit) {
+        List<TransactionArchiveSegment> snapshot = segments;
+        if (snapshot.isEmpty()) {
+            return List.of();
+        }
+        long from = filter.from() == null ? Long.MIN_VALUE : TransactionArchiveSegment.micros(filter.from());
+        long until = filter.until() == null ? Long.MAX_VALUE : TransactionArchiveSegment.micros(filter.until());
+        // The seek position narrows the time window; ties on its timestamp are settled by transaction ID
+        long seek = seekTimestamp == null ? 0 : TransactionArchiveSegment.micros(seekTimestamp);
+        if (seekTimestamp != null && newestFirst) {
+            until = Math.min(until, seek + 1);
+        } else if (seekTimestamp != null) {
+            from = Math.max(from, seek);
+        }
+        
+        List<TransactionArchiveSegment> candidates = new ArrayList<>();
+        for (TransactionArchiveSegment segment : snapshot) {
+            boolean pruned = segment.maxOriginalTimestamp() < from || segment.minOriginalTimestamp() >= until
+                    || (filter.cardNumber() != null && !segment.mightContainCard(filter.cardNumber()))
+                    || (filter.accountId() != null && !segment.mightContainAccount(filter.accountId()));
+            if (pruned) {
+                segmentsPruned.increment();
+            } else {
+                candidates.add(segment);
+            }
+        }
+        // Visit the segments most likely to hold the first rows first, so the rest can often be skipped
+        candidates.sort(newestFirst
+                ? Comparator.comparingLong(TransactionArchiveSegment::maxOriginalTimestamp).reversed()
+                : Comparator.comparingLong(TransactionArchiveSegment::minOriginalTimestamp));
+        
+        Comparator<Hit> order = newestFirst ? NEWEST_FIRST : NEWEST_FIRST.reversed();
+        List<Hit> hits = new ArrayList<>();
+        for (TransactionArchiveSegment segment : candidates) {
+            if (hits.size() >= limit) {
+                long last = hits.get(limit - 1).originalTimestamp();
+                if (newestFirst ? segment.maxOriginalTimestamp() < last : segment.minOriginalTimestamp() > last) {
+                    segmentsPruned.increment();
+                    continue;
+                }
+            }
+            segmentsScanned.increment();
+            scan(segment, filter, from, until, seekTimestamp == null ? null : seekId, seek, newestFirst, limit, hits);
+            hits.sort(order);
+            if (hits.size() > limit) {
+                hits.subList(limit, hits.size()).clear();
+            }
+        }
+        return materialize(hits);
+    }
+    
+    /**
+     * Adds the matching rows of one segment to hits, in query order and at most limit of them.
+     * Rows are sorted by (originalTimestamp, transactionId), so the time window is found by
+     * binary search and newest-first queries walk it backwards.
+     */
+    private void scan(TransactionArchiveSegment segment, Filter filter, long from, long until, String seekId, long seek,
+                      boolean newestFirst, int limit, List<Hit> hits) {
+        byte[] timestamps = column(segment, Column.ORIGINAL_TIMESTAMP);
+        int start = segment.firstRowAtOrAfter(timestamps, from);
+        int end = until == Long.MAX_VALUE ? segment.rowCount() : segment.firstRowAtOrAfter(timestamps, until);
+        if (start >= end) {
+            return;
+        }
+        byte[] ids = column(segment, Column.TRANSACTION_ID);
+        byte[] cards = filter.cardNumber() == null ? null : column(segment, Column.CARD_NUMBER);
+        byte[] card = filter.cardNumber() == null ? null : filter.cardNumber().getBytes(StandardCharsets.UTF_8);
+        byte[] accounts = filter.accountId() == null ? null : column(segment, Column.ACCOUNT_ID);
+        
+        int found = 0;
+        for (int i = 0; i < end - start && found < limit; i++) {
+            int row = newestFirst ? end - 1 - i : start + i;
+            if (cards != null && !segment.textEquals(cards, row, card)) {
+                continue;
+            }
+            if (accounts != null && TransactionArchiveSegment.number(accounts, row) != filter.accountId()) {
+                continue;
+            }
+            long timestamp = TransactionArchiveSegment.number(timestamps, row);
+            String transactionId = segment.text(ids, row);
+            if (seekId != null && timestamp == seek) {
+                int comparison = transactionId.compareTo(seekId);
+                if (newestFirst ? comparison >= 0 : comparison <= 0) {
+                    continue;
+                }
+            }
+            hits.add(new Hit(segment, row, timestamp, transactionId));
+            found++;
+        }
+    }
+    
+    private List<Transaction> materialize(List<Hit> hits) {
+        Map<TransactionArchiveSegment, byte[][]> decoded = new IdentityHashMap<>();
+        List<Transaction> transactions = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            byte[][] segmentColumns = decoded.computeIfAbsent(hit.segment(), this::columns);
+            transactions.add(hit.segment().transaction(segmentColumns, hit.row()));
+        }
+        return transactions;
+    }
+    
+    private byte[][] columns(TransactionArchiveSegment segment) {
+        Column[] all = Column.values();
+        byte[][] decoded = new byte[all.length][];
+        for (Column column : all) {
+            decoded[column.ordinal()] = column(segment, column);
+        }
+        return decoded;
+    }
+    
+    private byte[] column(TransactionArchiveSegment segment, Column column) {
+        try {
+            return columnCache.get(new ColumnKey(segment.fileName(), column), key -> segment.readColumn(column));
+        } catch (UncheckedIOException e) {
+            log.error("Cannot read archive segment {}: {}", segment.fileName(), e.getMessage());
+            throw new RuntimeException("Transaction archive is unreadable...");
+        }
+    }
+    
+    private static Counter segmentCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("transactions.archive.segments")
+                .description("Archive segments visited by queries: scanned, or pruned by their index without reading")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private record ColumnKey(String fileName, Column column) {
+    }
+    
+    private record Hit(TransactionArchiveSegment segment, int row, long originalTimestamp, String transactionId) {
+    }
+}
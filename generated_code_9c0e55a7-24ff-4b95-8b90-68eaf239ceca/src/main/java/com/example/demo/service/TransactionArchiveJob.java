@@ -0,0 +1,276 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionArchiveDTO;
+import com.example.demo.entity.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves transactions older than the configured age from the transactions table into the
+ * TransactionArchive, month by month, in segments of at most segment-max-rows. Each segment
+ * file is written and forced to disk first; then one database transaction registers it in
+ * transaction_archive_segments and deletes its rows, so a crash leaves every transaction in
+ * exactly one tier. Daily rollups, category balances and account totals are not touched.
+ * Runs on request or on a schedule; single instance only.
+ */
+@Service
+@Slf4j
+public class TransactionArchiveJob {
+    
+    public static final String STATUS_IDLE = "IDLE";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    private static final String OLDEST_SQL = "SELECT MIN(original_timestamp) FROM transactions WHERE original_timestamp < ?";
+    
+    private static final String SELECT_CHUNK_SQL = """
+            SELECT transaction_id, card_number, account_id, type_code, category_code, source, description, amount,
+                merchant_id, merchant_name, merchant_city, merchant_zip, original_timestamp, processed_timestamp,
+                created_at, updated_at
+            FROM transactions WHERE original_timestamp >= ? AND original_timestamp < ?
+            ORDER BY original_timestamp, transaction_id FETCH FIRST ? ROWS ONLY""";
+    
+    private static final String REGISTER_SQL = """
+            INSERT INTO transaction_archive_segments (file_name, archive_month, row_count, min_original_timestamp,
+                max_original_timestamp, file_size, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)""";
+    
+    private static final String DELETE_SQL = "DELETE FROM transactions WHERE transaction_id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchive transactionArchive;
+    private final Duration minAge;
+    private final int segmentMaxRows;
+    private final boolean scheduled;
+    private final Duration scheduleInterval;
+    private final Counter transactionsArchived;
+    private final Timer segmentTimer;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String status = STATUS_IDLE;
+    private volatile LocalDateTime cutoff;
+    private volatile long runTransactions;
+    private volatile int runSegments;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String errorMessage;
+    private volatile boolean stopping;
+    private ScheduledExecutorService runner;
+    
+    public TransactionArchiveJob(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 TransactionArchive transactionArchive,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${transaction.archive.min-age:365d}") Duration minAge,
+                                 @Value("${transaction.archive.segment-max-rows:50000}") int segmentMaxRows,
+                                 @Value("${transaction.archive.schedule.enabled:false}") boolean scheduled,
+                                 @Value("${transaction.archive.schedule.interval:1d}") Duration scheduleInterval) {
+        if (segmentMaxRows < 1) {
+            throw new IllegalArgumentException("transaction.archive.segment-max-rows must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionArchive = transactionArchive;
+        this.minAge = minAge;
+        this.segmentMaxRows = segmentMaxRows;
+        this.scheduled = scheduled;
+        this.scheduleInterval = scheduleInterval;
+        this.transactionsArchived = Counter.builder("transactions.archive.moved")
+                .description("Transactions moved from the transactions table into the archive")
+                .register(meterRegistry);
+        this.segmentTimer = Timer.builder("transactions.archive.segment")
+                .description("Time to write one archive segment and delete its rows, commit included")
+                .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        runner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (scheduled) {
+            long intervalMillis = scheduleInterval.toMillis();
+            runner.scheduleWithFixedDelay(() -> {
+                if (running.compareAndSet(false, true)) {
+                    run(defaultCutoff());
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            log.info("Transactions older than {} are archived every {}", minAge, scheduleInterval);
+        }
+    }
+    
+    @PreDestroy
+    public void stop() {
+        // The segment in progress commits or rolls back; its file is removed on the next startup if it didn't commit
+        stopping = true;
+        if (runner != null) {
+            runner.shutdown();
+        }
+    }
+    
+    /**
+     * Starts archiving in the background
+     *
+     * @param cutoffDate Archive transactions from before this day, or null for the configured minimum age
+     */
+    public TransactionArchiveDTO start(LocalDate cutoffDate) {
+        LocalDateTime runCutoff = cutoffDate == null ? defaultCutoff() : cutoffDate.atStartOfDay();
+        if (runCutoff.isAfter(LocalDate.now().atStartOfDay())) {
+            throw new RuntimeException("Cutoff date must not be after today...");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Transaction archival is already running...");
+        }
+        try {
+            runner.execute(() -> run(runCutoff));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return getStatus();
+    }
+    
+    public TransactionArchiveDTO getStatus() {
+        return new TransactionArchiveDTO(running.get() ? STATUS_RUNNING : status, cutoff, transactionArchive.segmentCount(),
+                transactionArchive.count(), transactionArchive.sizeBytes(), runTransactions, runSegments, startedAt,
+                finishedAt, errorMessage);
+    }
+    
+    private LocalDateTime defaultCutoff() {
+        return LocalDateTime.now().minus(minAge).toLocalDate().atStartOfDay();
+    }
+    
+    private void run(LocalDateTime runCutoff) {
+        cutoff = runCutoff;
+        runTransactions = 0;
+        runSegments = 0;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        errorMessage = null;
+        status = STATUS_RUNNING;
+        try {
+            LocalDateTime oldest = jdbcTemplate.queryForObject(OLDEST_SQL, LocalDateTime.class, Timestamp.valueOf(runCutoff));
+            if (oldest != null) {
+                log.info("Archiving transactions before {}, oldest from {}", runCutoff, oldest);
+                for (YearMonth month = YearMonth.from(oldest); month.atDay(1).atStartOfDay().isBefore(runCutoff) && !stopping;
+                     month = month.plusMonths(1)) {
+                    archiveMonth(month, runCutoff);
+                }
+            }
+            status = STATUS_COMPLETED;
+            log.info("Archived {} transactions in {} segments", runTransactions, runSegments);
+        } catch (RuntimeException e) {
+            log.error("Transaction archival failed: {}", e.getMessage(), e);
+            String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            errorMessage = message.substring(0, Math.min(message.length(), 255));
+            status = STATUS_FAILED;
+        } finally {
+            finishedAt = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+    
+    private void archiveMonth(YearMonth month, LocalDateTime runCutoff) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime nextMonth = month.plusMonths(1).atDay(1).atStartOfDay();
+        LocalDateTime until = nextMonth.isBefore(runCutoff) ? nextMonth : runCutoff;
+        int archived;
+        do {
+            // Archived rows are deleted, so every chunk starts at the beginning of the month again
+            List<Transaction> rows = jdbcTemplate.query(SELECT_CHUNK_SQL, this::mapTransaction,
+                    Timestamp.valueOf(from), Timestamp.valueOf(until), segmentMaxRows);
+            archived = rows.size();
+            if (archived > 0) {
+                segmentTimer.record(() -> archiveSegment(month, rows));
+                transactionsArchived.increment(archived);
+                runTransactions += archived;
+                runSegments++;
+            }
+        } while (archived == segmentMaxRows && !stopping);
+    }
+    
+    private void archiveSegment(YearMonth month, List<Transaction> rows) {
+        TransactionArchiveSegment segment;
+        try {
+            segment = TransactionArchiveSegment.write(transactionArchive.dir(), month, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write archive segment for " + month, e);
+        }
+        // Visible before the rows leave the table, so queries find them in one tier or the other throughout
+        transactionArchive.publish(segment);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(REGISTER_SQL, segment.fileName(), month.toString(), segment.rowCount(),
+                        Timestamp.valueOf(rows.get(0).getOriginalTimestamp()),
+                        Timestamp.valueOf(rows.get(rows.size() - 1).getOriginalTimestamp()),
+                        segment.fileSize(), Timestamp.valueOf(LocalDateTime.now()));
+                int[] deleted = jdbcTemplate.batchUpdate(DELETE_SQL, rows.stream()
+                        .map(transaction -> new Object[]{transaction.getTransactionId()})
+                        .toList());
+                for (int count : deleted) {
+                    if (count == 0) {
+                        throw new RuntimeException("Transaction deleted while being archived...");
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            transactionArchive.unpublish(segment);
+            try {
+                Files.deleteIfExists(segment.path());
+            } catch (IOException deleteFailure) {
+                log.warn("Cannot remove archive segment {}: {}", segment.fileName(), deleteFailure.getMessage());
+            }
+            throw e;
+        }
+        log.info("Archived {} transactions of {} into {}", rows.size(), month, segment.fileName());
+    }
+    
+    private Transaction mapTransaction(ResultSet rs, int rowNum) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(rs.getString("transaction_id"));
+        transaction.setCardNumber(rs.getString("card_number"));
+        transaction.setAccountId(rs.getLong("account_id"));
+        transaction.setTypeCode(rs.getString("type_code"));
+        transaction.setCategoryCode(rs.getInt("category_code"));
+        transaction.setSource(rs.getString("source"));
+        transaction.setDescription(rs.getString("description"));
+        transaction.setAmount(rs.getBigDecimal("amount"));
+        transaction.setMerchantId(rs.getLong("merchant_id"));
+        transaction.setMerchantName(rs.getString("merchant_name"));
+        transaction.setMerchantCity(rs.getString("merchant_city"));
+        transaction.setMerchantZip(rs.getString("merchant_zip"));
+        transaction.setOriginalTimestamp(rs.getTimestamp("original_timestamp").toLocalDateTime());
+        transaction.setProcessedTimestamp(rs.getTimestamp("processed_timestamp").toLocalDateTime());
+        transaction.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        transaction.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        return transaction;
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One file of the transaction archive: the transactions of one month, sorted by
+ * (originalTimestamp, transactionId), stored column by column. Each column is Deflate-compressed
+ * on its own, so a query decompresses only the columns it filters on until a row matches. The
+ * footer holds the row count, the min/max originalTimestamp and transactionId, Bloom filters of
+ * the card numbers and account IDs, and where each column is; it is read once when the segment
+ * is opened, so pruning a segment costs no I/O.
+ *
+ * <pre>
+ * "TXSG" version | column 0 ... column 15 | footer | footer offset (8 bytes) "TXSG"
+ * </pre>
+ *
+ * Text columns are (rows + 1) int offsets followed by the UTF-8 bytes; numeric columns are one
+ * big-endian long per row (timestamps as epoch microseconds, amounts in cents).
+ */
+final class TransactionArchiveSegment {
+    
+    static final String FILE_SUFFIX = ".seg";
+    
+    private static final int MAGIC = 0x54585347;
+    private static final int FORMAT_VERSION = 1;
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    
+    enum Column {
+        TRANSACTION_ID, CARD_NUMBER, ACCOUNT_ID, TYPE_CODE, CATEGORY_CODE, SOURCE, DESCRIPTION, AMOUNT, MERCHANT_ID,
+        MERCHANT_NAME, MERCHANT_CITY, MERCHANT_ZIP, ORIGINAL_TIMESTAMP, PROCESSED_TIMESTAMP, CREATED_AT, UPDATED_AT
+    }
+    
+    private final Path path;
+    private final String fileName;
+    private final YearMonth month;
+    private final int rowCount;
+    private final long minOriginalTimestamp;
+    private final long maxOriginalTimestamp;
+    private final String minTransactionId;
+    private final String maxTransactionId;
+    private final BloomFilter cardNumbers;
+    private final BloomFilter accountIds;
+    private final long[] columnOffsets;
+    private final int[] columnLengths;
+    private final int[] columnRawLengths;
+    private final long fileSize;
+    
+    private TransactionArchiveSegment(Path path, String fileName, YearMonth month, DataInputStream footer, long fileSize) throws IOException {
+        this.path = path;
+        this.fileName = fileName;
+        this.month = month;
+        this.fileSize = fileSize;
+        this.rowCount = footer.readInt();
+        this.minOriginalTimestamp = footer.readLong();
+        this.maxOriginalTimestamp = footer.readLong();
+        this.minTransactionId = footer.readUTF();
+        this.maxTransactionId = footer.readUTF();
+        this.cardNumbers = BloomFilter.read(footer);
+        this.accountIds = BloomFilter.read(footer);
+        int columnCount = footer.readInt();
+        if (columnCount != Column.values().length) {
+            throw new IOException("Archive segment " + fileName + " has " + columnCount + " columns");
+        }
+        this.columnOffsets = new long[columnCount];
+        this.columnLengths = new int[columnCount];
+        this.columnRawLengths = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnOffsets[i] = footer.readLong();
+            columnLengths[i] = footer.readInt();
+            columnRawLengths[i] = footer.readInt();
+        }
+    }
+    
+    /**
+     * Writes transactions of one month into a new segment file. The file is written under a
+     * temporary name, forced to disk and then renamed, so a segment file is always complete.
+     *
+     * @param archiveDir Root of the archive; the segment goes into its month's directory
+     * @param transactions The rows, sorted by (originalTimestamp, transactionId)
+     */
+    static TransactionArchiveSegment write(Path archiveDir, YearMonth month, List<Transaction> transactions) throws IOException {
+        Transaction first = transactions.get(0);
+        Transaction last = transactions.get(transactions.size() - 1);
+        // Transaction IDs come from outside (imports), so they don't make safe file names
+        String fileName = month + "/" + UUID.randomUUID() + FILE_SUFFIX;
+        Path path = archiveDir.resolve(fileName);
+        Files.createDirectories(path.getParent());
+        
+        BloomFilter cardNumbers = BloomFilter.create(transactions.size());
+        BloomFilter accountIds = BloomFilter.create(transactions.size());
+        String minTransactionId = first.getTransactionId();
+        String maxTransactionId = first.getTransactionId();
+        for (Transaction transaction : transactions) {
+            cardNumbers.add(transaction.getCardNumber());
+            accountIds.add(String.valueOf(transaction.getAccountId()));
+            if (transaction.getTransactionId().compareTo(minTransactionId) < 0) {
+                minTransactionId = transaction.getTransactionId();
+            }
+            if (transaction.getTransactionId().compareTo(maxTransactionId) > 0) {
+                maxTransactionId = transaction.getTransactionId();
+            }
+        }
+        
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            long position = 2L * Integer.BYTES;
+            
+            Column[] columns = Column.values();
+            long[] offsets = new long[columns.length];
+            int[] lengths = new int[columns.length];
+            int[] rawLengths = new int[columns.length];
+            Deflater deflater = new Deflater();
+            try {
+                for (Column column : columns) {
+                    byte[] raw = encode(column, transactions);
+                    byte[] compressed = deflate(deflater, raw);
+                    out.write(compressed);
+                    offsets[column.ordinal()] = position;
+                    lengths[column.ordinal()] = compressed.length;
+                    rawLengths[column.ordinal()] = raw.length;
+                    position += compressed.length;
+                }
+            } finally {
+                deflater.end();
+            }
+            
+            long footerOffset = position;
+            out.writeInt(transactions.size());
+            out.writeLong(micros(first.getOriginalTimestamp()));
+            out.writeLong(micros(last.getOriginalTimestamp()));
+            out.writeUTF(minTransactionId);
+            out.writeUTF(maxTransactionId);
+            cardNumbers.write(out);
+            accountIds.write(out);
+            out.writeInt(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+                out.writeInt(rawLengths[i]);
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(archiveDir, fileName);
+    }
+    
+    /**
+     * Reads the footer of an existing segment file
+     *
+     * @param fileName Path of the segment relative to the archive directory
+     */
+    static TransactionArchiveSegment open(Path archiveDir, String fileName) throws IOException {
+        Path path = archiveDir.resolve(fileName);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+            channel.read(trailer, size - TRAILER_LENGTH);
+            trailer.flip();
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || footerOffset < 0 || footerOffset > size - TRAILER_LENGTH) {
+                throw new IOException("Archive segment " + fileName + " is incomplete or not a segment file");
+            }
+            ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_LENGTH - footerOffset));
+            channel.read(footer, footerOffset);
+            YearMonth month = YearMonth.parse(fileName.substring(0, fileName.indexOf('/')));
+            return new TransactionArchiveSegment(path, fileName, month,
+                    new DataInputStream(new ByteArrayInputStream(footer.array())), size);
+        }
+    }
+    
+    /**
+     * Reads and decompresses one column
+     */
+    byte[] readColumn(Column column) {
+        int index = column.ordinal();
+        ByteBuffer compressed = ByteBuffer.allocate(columnLengths[index]);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, columnOffsets[index] + compressed.position()) < 0) {
+                    throw new IOException("Archive segment " + fileName + " is truncated");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] raw = new byte[columnRawLengths[index]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+            if (read != raw.length) {
+                throw new UncheckedIOException(new IOException("Archive segment " + fileName + " has a corrupt " + column + " column"));
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Archive segment " + fileName + " has a corrupt " + column + " column", e));
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+    
+    /**
+     * Rebuilds the transaction at row from its decompressed columns, indexed by Column ordinal
+     */
+    Transaction transaction(byte[][] columns, int row) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(text(columns[Column.TRANSACTION_ID.ordinal()], row));
+        transaction.setCardNumber(text(columns[Column.CARD_NUMBER.ordinal()], row));
+        transaction.setAccountId(number(columns[Column.ACCOUNT_ID.ordinal()], row));
+        transaction.setTypeCode(text(columns[Column.TYPE_CODE.ordinal()], row));
+        transaction.setCategoryCode((int) number(columns[Column.CATEGORY_CODE.ordinal()], row));
+        transaction.setSource(text(columns[Column.SOURCE.ordinal()], row));
+        transaction.setDescription(text(columns[Column.DESCRIPTION.ordinal()], row));
+        transaction.setAmount(BigDecimal.valueOf(number(columns[Column.AMOUNT.ordinal()], row), 2));
+        transaction.setMerchantId(number(columns[Column.MERCHANT_ID.ordinal()], row));
+        transaction.setMerchantName(text(columns[Column.MERCHANT_NAME.ordinal()], row));
+        transaction.setMerchantCity(text(columns[Column.MERCHANT_CITY.ordinal()], row));
+        transaction.setMerchantZip(text(columns[Column.MERCHANT_ZIP.ordinal()], row));
+        transaction.setOriginalTimestamp(timestamp(number(columns[Column.ORIGINAL_TIMESTAMP.ordinal()], row)));
+        transaction.setProcessedTimestamp(timestamp(number(columns[Column.PROCESSED_TIMESTAMP.ordinal()], row)));
+        transaction.setCreatedAt(timestamp(number(columns[Column.CREATED_AT.ordinal()], row)));
+        transaction.setUpdatedAt(timestamp(number(columns[Column.UPDATED_AT.ordinal()], row)));
+        return transaction;
+    }
+    
+    static long number(byte[] column, int row) {
+        return (long) LONGS.get(column, row * Long.BYTES);
+    }
+    
+    String text(byte[] column, int row) {
+        int start = (int) INTS.get(column, row * Integer.BYTES);
+        int end = (int) INTS.get(column, (row + 1) * Integer.BYTES);
+        return new String(column, (rowCount + 1) * Integer.BYTES + start, end - start, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Compares the text at row with value without decoding it
+     */
+    boolean textEquals(byte[] column, int row, byte[] value) {
+        int start = (int) INTS.get(column, row * Integer.BYTES);
+        int end = (int) INTS.get(column, (row + 1) * Integer.BYTES);
+        int base = (rowCount + 1) * Integer.BYTES;
+        return Arrays.equals(column, base + start, base + end, value, 0, value.length);
+    }
+    
+    /**
+     * @return the first row whose originalTimestamp is at least micros, or rowCount when there is none
+     */
+    int firstRowAtOrAfter(byte[] originalTimestamps, long micros) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (number(originalTimestamps, middle) < micros) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    static long micros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+    
+    static LocalDateTime timestamp(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000,
+                ZoneOffset.UTC);
+    }
+    
+    boolean mightContainCard(String cardNumber) {
+        return cardNumbers.mightContain(cardNumber);
+    }
+    
+    boolean mightContainAccount(Long accountId) {
+        return accountIds.mightContain(String.valueOf(accountId));
+    }
+    
+    boolean mightContainId(String transactionId) {
+        return transactionId.compareTo(minTransactionId) >= 0 && transactionId.compareTo(maxTransactionId) <= 0;
+    }
+    
+    String fileName() {
+        return fileName;
+    }
+    
+    Path path() {
+        return path;
+    }
+    
+    YearMonth month() {
+        return month;
+    }
+    
+    int rowCount() {
+        return rowCount;
+    }
+    
+    long minOriginalTimestamp() {
+        return minOriginalTimestamp;
+    }
+    
+    long maxOriginalTimestamp() {
+        return maxOriginalTimestamp;
+    }
+    
+    long fileSize() {
+        return fileSize;
+    }
+    
+    private static byte[] encode(Column column, List<Transaction> transactions) {
+        return switch (column) {
+            case TRANSACTION_ID -> texts(transactions, Transaction::getTransactionId);
+            case CARD_NUMBER -> texts(transactions, Transaction::getCardNumber);
+            case ACCOUNT_ID -> numbers(transactions, Transaction::getAccountId);
+            case TYPE_CODE -> texts(transactions, Transaction::getTypeCode);
+            case CATEGORY_CODE -> numbers(transactions, Transaction::getCategoryCode);
+            case SOURCE -> texts(transactions, Transaction::getSource);
+            case DESCRIPTION -> texts(transactions, Transaction::getDescription);
+            case AMOUNT -> numbers(transactions, transaction -> transaction.getAmount().setScale(2).unscaledValue().longValueExact());
+            case MERCHANT_ID -> numbers(transactions, Transaction::getMerchantId);
+            case MERCHANT_NAME -> texts(transactions, Transaction::getMerchantName);
+            case MERCHANT_CITY -> texts(transactions, Transaction::getMerchantCity);
+            case MERCHANT_ZIP -> texts(transactions, Transaction::getMerchantZip);
+            case ORIGINAL_TIMESTAMP -> numbers(transactions, transaction -> micros(transaction.getOriginalTimestamp()));
+            case PROCESSED_TIMESTAMP -> numbers(transactions, transaction -> micros(transaction.getProcessedTimestamp()));
+            case CREATED_AT -> numbers(transactions, transaction -> micros(transaction.getCreatedAt()));
+            case UPDATED_AT -> numbers(transactions, transaction -> micros(transaction.getUpdatedAt()));
+        };
+    }
+    
+    private static byte[] numbers(List<Transaction> transactions, ToLongFunction<Transaction> value) {
+        byte[] column = new byte[transactions.size() * Long.BYTES];
+        for (int i = 0; i < transactions.size(); i++) {
+            LONGS.set(column, i * Long.BYTES, value.applyAsLong(transactions.get(i)));
+        }
+        return column;
+    }
+    
+    private static byte[] texts(List<Transaction> transactions, Function<Transaction, String> value) {
+        byte[] offsets = new byte[(transactions.size() + 1) * Integer.BYTES];
+        ByteArrayOutputStream data = new ByteArrayOutputStream(transactions.size() * 16);
+        for (int i = 0; i < transactions.size(); i++) {
+            INTS.set(offsets, i * Integer.BYTES, data.size());
+            data.writeBytes(value.apply(transactions.get(i)).getBytes(StandardCharsets.UTF_8));
+        }
+        INTS.set(offsets, transactions.size() * Integer.BYTES, data.size());
+        ByteArrayOutputStream column = new ByteArrayOutputStream(offsets.length + data.size());
+        column.writeBytes(offsets);
+        column.writeBytes(data.toByteArray());
+        return column.toByteArray();
+    }
+    
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] buffer = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+    
+    /**
+     * Bloom filter over strings with about 1% false positives at the expected number of entries.
+     * Probe positions come from one 64-bit FNV-1a hash split in two (Kirsch-Mitzenmacher).
+     */
+    static final class BloomFilter {
+        
+        private static final int BITS_PER_ENTRY = 10;
+        private static final int HASH_COUNT = 7;
+        
+        private final long[] words;
+        private final int hashCount;
+        
+        private BloomFilter(long[] words, int hashCount) {
+            this.words = words;
+            this.hashCount = hashCount;
+        }
+        
+        static BloomFilter create(int expectedEntries) {
+            long bits = Math.max(64L, (long) expectedEntries * BITS_PER_ENTRY);
+            return new BloomFilter(new long[(int) ((bits + 63) / 64)], HASH_COUNT);
+        }
+        
+        static BloomFilter read(DataInputStream in) throws IOException {
+            int hashCount = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new BloomFilter(words, hashCount);
+        }
+        
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(hashCount);
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        
+        void add(String value) {
+            long hash = hash(value);
+            long bits = (long) words.length * 64;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod((hash >>> 32) + i * (int) hash, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+        
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            long bits = (long) words.length * 64;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod((hash >>> 32) + i * (int) hash, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
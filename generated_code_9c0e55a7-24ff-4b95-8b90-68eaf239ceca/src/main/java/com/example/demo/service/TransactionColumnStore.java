@@ -0,0 +1,237 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Column store behind TransactionAnalyticsEngine: one row per transaction in chunks of
+ * CHUNK_ROWS primitive values per column (amount in cents, epoch day, and dictionary ids of
+ * type, category, merchant and account), 26 bytes a row. Rows are appended under the store's
+ * monitor and published by the volatile row count, so scans read a consistent prefix without
+ * locking. An aggregation splits the chunks into one range per partition and sums each range
+ * into arrays indexed by group id, which are added up at the end.
+ */
+final class TransactionColumnStore {
+    
+    static final int CHUNK_ROWS = 1 << 16;
+    
+    enum Dimension {
+        DAY, TYPE, CATEGORY, MERCHANT, ACCOUNT
+    }
+    
+    record CategoryKey(String typeCode, int categoryCode) {
+    }
+    
+    /**
+     * Transaction count and amount in cents per group id; for DAY the group id is the number of
+     * days since firstDay
+     */
+    record Totals(long[] counts, long[] sumCents, int firstDay) {
+        
+        static final Totals EMPTY = new Totals(new long[0], new long[0], 0);
+    }
+    
+    private static final class Chunk {
+        final long[] amountCents = new long[CHUNK_ROWS];
+        final int[] epochDay = new int[CHUNK_ROWS];
+        final short[] type = new short[CHUNK_ROWS];
+        final int[] category = new int[CHUNK_ROWS];
+        final int[] merchant = new int[CHUNK_ROWS];
+        final int[] account = new int[CHUNK_ROWS];
+    }
+    
+    /**
+     * Dense ids for the distinct values of a column, in order of first appearance
+     */
+    private static final class Dictionary<K> {
+        private final Map<K, Integer> ids = new HashMap<>();
+        private final List<K> values = new ArrayList<>();
+        
+        int id(K value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+        
+        int find(K value) {
+            return ids.getOrDefault(value, -1);
+        }
+        
+        K value(int id) {
+            return values.get(id);
+        }
+        
+        int size() {
+            return values.size();
+        }
+    }
+    
+    // Guarded by this, as are minDay and maxDay
+    private final Dictionary<String> types = new Dictionary<>();
+    private final Dictionary<CategoryKey> categories = new Dictionary<>();
+    private final Dictionary<Long> merchants = new Dictionary<>();
+    private final List<String> merchantNames = new ArrayList<>();
+    private final Dictionary<Long> accounts = new Dictionary<>();
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    
+    // Chunks are added before the row count that makes their rows visible
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int rowCount;
+    
+    synchronized void append(long accountId, String typeCode, int categoryCode, long amountCents,
+                             long merchantId, String merchantName, int epochDay) {
+        int row = rowCount;
+        if (row == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transaction column store is full");
+        }
+        int typeId = types.id(typeCode);
+        if (typeId > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many transaction types in the column store");
+        }
+        int merchant = merchants.id(merchantId);
+        if (merchant == merchantNames.size()) {
+            merchantNames.add(merchantName);
+        }
+        
+        Chunk[] current = chunks;
+        int chunkIndex = row / CHUNK_ROWS;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, chunkIndex + 1);
+            current[chunkIndex] = new Chunk();
+            chunks = current;
+        }
+        Chunk chunk = current[chunkIndex];
+        int i = row % CHUNK_ROWS;
+        chunk.amountCents[i] = amountCents;
+        chunk.epochDay[i] = epochDay;
+        chunk.type[i] = (short) typeId;
+        chunk.category[i] = categories.id(new CategoryKey(typeCode, categoryCode));
+        chunk.merchant[i] = merchant;
+        chunk.account[i] = accounts.id(accountId);
+        minDay = Math.min(minDay, epochDay);
+        maxDay = Math.max(maxDay, epochDay);
+        rowCount = row + 1;
+    }
+    
+    int rowCount() {
+        return rowCount;
+    }
+    
+    synchronized String typeCode(int typeId) {
+        return types.value(typeId);
+    }
+    
+    synchronized CategoryKey category(int categoryId) {
+        return categories.value(categoryId);
+    }
+    
+    synchronized long merchantId(int merchantId) {
+        return merchants.value(merchantId);
+    }
+    
+    synchronized String merchantName(int merchantId) {
+        return merchantNames.get(merchantId);
+    }
+    
+    synchronized long accountId(int accountId) {
+        return accounts.value(accountId);
+    }
+    
+    /**
+     * Counts and sums the rows of a day range by one dimension
+     *
+     * @param fromDay First epoch day, inclusive
+     * @param toDay Last epoch day, inclusive
+     * @param typeCode Only rows of this type, or null for all
+     * @param accountId Only rows of this account, or null for all
+     */
+    Totals aggregate(Dimension groupBy, int fromDay, int toDay, String typeCode, Long accountId,
+                     ForkJoinPool pool, int partitions) {
+        int rows;
+        Chunk[] snapshot;
+        int groups;
+        int typeFilter;
+        int accountFilter;
+        synchronized (this) {
+            rows = rowCount;
+            snapshot = chunks;
+            typeFilter = typeCode == null ? -1 : types.find(typeCode);
+            accountFilter = accountId == null ? -1 : accounts.find(accountId);
+            if (rows == 0 || (typeCode != null && typeFilter < 0) || (accountId != null && accountFilter < 0)) {
+                return Totals.EMPTY;
+            }
+            fromDay = Math.max(fromDay, minDay);
+            toDay = Math.min(toDay, maxDay);
+            if (fromDay > toDay) {
+                return Totals.EMPTY;
+            }
+            groups = switch (groupBy) {
+                case DAY -> toDay - fromDay + 1;
+                case TYPE -> types.size();
+                case CATEGORY -> categories.size();
+                case MERCHANT -> merchants.size();
+                case ACCOUNT -> accounts.size();
+            };
+        }
+        
+        int chunkCount = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        int parts = Math.min(partitions, chunkCount);
+        int firstDay = fromDay;
+        int lastDay = toDay;
+        List<ForkJoinTask<Totals>> tasks = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            int firstChunk = chunkCount * p / parts;
+            int lastChunk = chunkCount * (p + 1) / parts;
+            tasks.add(pool.submit(() -> scan(snapshot, firstChunk, lastChunk, rows, groupBy, groups,
+                    firstDay, lastDay, typeFilter, accountFilter)));
+        }
+        long[] counts = new long[groups];
+        long[] sumCents = new long[groups];
+        for (ForkJoinTask<Totals> task : tasks) {
+            Totals partial = task.join();
+            for (int g = 0; g < groups; g++) {
+                counts[g] += partial.counts()[g];
+                sumCents[g] += partial.sumCents()[g];
+            }
+        }
+        return new Totals(counts, sumCents, firstDay);
+    }
+    
+    private static Totals scan(Chunk[] chunks, int firstChunk, int lastChunk, int rows, Dimension groupBy, int groups,
+                               int firstDay, int lastDay, int typeFilter, int accountFilter) {
+        long[] counts = new long[groups];
+        long[] sumCents = new long[groups];
+        for (int c = firstChunk; c < lastChunk; c++) {
+            Chunk chunk = chunks[c];
+            int length = Math.min(CHUNK_ROWS, rows - c * CHUNK_ROWS);
+            for (int i = 0; i < length; i++) {
+                int day = chunk.epochDay[i];
+                if (day < firstDay || day > lastDay
+                        || (typeFilter >= 0 && chunk.type[i] != typeFilter)
+                        || (accountFilter >= 0 && chunk.account[i] != accountFilter)) {
+                    continue;
+                }
+                int group = switch (groupBy) {
+                    case DAY -> day - firstDay;
+                    case TYPE -> chunk.type[i];
+                    case CATEGORY -> chunk.category[i];
+                    case MERCHANT -> chunk.merchant[i];
+                    case ACCOUNT -> chunk.account[i];
+                };
+                counts[group]++;
+                sumCents[group] += chunk.amountCents[i];
+            }
+        }
+        return new Totals(counts, sumCents, firstDay);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a transaction history ordered by (originalTimestamp, transactionId)
+ * descending. An OLDER cursor continues after the row it was taken from, a NEWER cursor pages
+ * back towards the rows before it.
+ */
+public record TransactionCursor(Direction direction, LocalDateTime originalTimestamp, String transactionId) {
+    
+    public enum Direction {
+        OLDER,
+        NEWER
+    }
+    
+    private static final char SEPARATOR = '|';
+    
+    public static TransactionCursor older(LocalDateTime originalTimestamp, String transactionId) {
+        return new TransactionCursor(Direction.OLDER, originalTimestamp, transactionId);
+    }
+    
+    public static TransactionCursor newer(LocalDateTime originalTimestamp, String transactionId) {
+        return new TransactionCursor(Direction.NEWER, originalTimestamp, transactionId);
+    }
+    
+    /**
+     * Decodes a cursor handed out by encode
+     *
+     * @param cursor The opaque cursor; null or blank means the first (newest) page
+     * @return the decoded position, or null for the first page
+     */
+    public static TransactionCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = value.indexOf(SEPARATOR);
+            int second = value.indexOf(SEPARATOR, first + 1);
+            if (first < 0 || second < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            Direction direction = value.charAt(0) == 'N' ? Direction.NEWER : Direction.OLDER;
+            LocalDateTime timestamp = LocalDateTime.parse(value.substring(first + 1, second));
+            return new TransactionCursor(direction, timestamp, value.substring(second + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor...");
+        }
+    }
+    
+    public String encode() {
+        String value = (direction == Direction.NEWER ? 'N' : 'O') + String.valueOf(SEPARATOR)
+                + originalTimestamp + SEPARATOR + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
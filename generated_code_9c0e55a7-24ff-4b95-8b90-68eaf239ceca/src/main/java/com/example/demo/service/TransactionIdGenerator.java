@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.TransactionIdSequenceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out transaction IDs from blocks reserved in the transaction_id_sequences table (hi/lo).
+ * IDs within the current block are handed out without locking; only a block refill takes a
+ * lock and a short database transaction, so every node reserves disjoint ranges.
+ */
+@Service
+@Slf4j
+public class TransactionIdGenerator {
+    
+    static final String SEQUENCE_NAME = "TRANSACTION";
+    static final int ID_LENGTH = 16;
+    static final long MAX_ID = 9_999_999_999_999_999L;
+    
+    private final TransactionIdSequenceRepository sequenceRepository;
+    private final TransactionTemplate allocationTemplate;
+    private final int blockSize;
+    private final long maxId;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile IdBlock currentBlock = new IdBlock(0, 0);
+    
+    public TransactionIdGenerator(TransactionIdSequenceRepository sequenceRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${transaction.id.block-size:100}") int blockSize,
+                                  @Value("${transaction.id.max:9999999999999999}") long maxId) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("transaction.id.block-size must be at least 1");
+        }
+        if (maxId < blockSize || maxId > MAX_ID) {
+            throw new IllegalArgumentException("transaction.id.max must be between transaction.id.block-size and " + MAX_ID);
+        }
+        this.sequenceRepository = sequenceRepository;
+        this.allocationTemplate = new TransactionTemplate(transactionManager);
+        this.allocationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        this.maxId = maxId;
+    }
+    
+    /**
+     * Returns the next transaction ID as a 16-digit zero-padded string
+     */
+    public String nextTransactionId() {
+        return format(nextId());
+    }
+    
+    /**
+     * Returns the next numeric transaction ID, reserving a new block when the current one is used up
+     */
+    public long nextId() {
+        while (true) {
+            IdBlock block = currentBlock;
+            long id = block.next.getAndIncrement();
+            if (id < block.limit) {
+                return id;
+            }
+            refill(block);
+        }
+    }
+    
+    /**
+     * Highest ID the generator hands out; every 16-digit ID above it is left to upstream systems
+     */
+    public long getMaxId() {
+        return maxId;
+    }
+    
+    private void refill(IdBlock exhausted) {
+        refillLock.lock();
+        try {
+            // Another thread may already have replaced the block while we were waiting
+            if (currentBlock == exhausted) {
+                currentBlock = reserveBlock(blockSize);
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+    
+    private IdBlock reserveBlock(int size) {
+        Long end = allocationTemplate.execute(status -> {
+            int updated = sequenceRepository.advance(SEQUENCE_NAME, size, LocalDateTime.now());
+            if (updated == 0) {
+                throw new RuntimeException("Transaction ID sequence NOT found...");
+            }
+            return sequenceRepository.findNextValue(SEQUENCE_NAME)
+                    .orElseThrow(() -> new RuntimeException("Transaction ID sequence NOT found..."));
+        });
+        
+        long start = end - size;
+        if (end - 1 > maxId) {
+            throw new RuntimeException("Transaction ID sequence exhausted...");
+        }
+        log.debug("Reserved transaction ID block [{}, {})", start, end);
+        return new IdBlock(start, end);
+    }
+    
+    static String format(long id) {
+        // Hand-rolled equivalent of String.format("%016d", id) without the Formatter overhead
+        char[] digits = new char[ID_LENGTH];
+        long remaining = id;
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + (remaining % 10));
+            remaining /= 10;
+        }
+        return new String(digits);
+    }
+    
+    private static final class IdBlock {
+        private final AtomicLong next;
+        private final long limit;
+        
+        private IdBlock(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the posting and report paths:
+ * transactions.posting.stage (tag stage), transactions.posting.rejections (tag reason) and
+ * transactions.report (tags type and mode). Percentile histograms are switched on through
+ * management.metrics.distribution.percentiles-histogram in application.properties.
+ */
+@Component
+public class TransactionMetrics {
+    
+    public static final String STAGE_VALIDATION = "validation";
+    public static final String STAGE_CARD_LOOKUP = "card_lookup";
+    public static final String STAGE_ID_ALLOCATION = "id_allocation";
+    public static final String STAGE_ACCOUNT_READ = "account_read";
+    public static final String STAGE_POSTING_RULES = "posting_rules";
+    public static final String STAGE_INSERT = "insert";
+    public static final String STAGE_BALANCE_UPDATE = "balance_update";
+    public static final String STAGE_ROLLUP_UPDATE = "rollup_update";
+    public static final String STAGE_COMMIT = "commit";
+    
+    public static final String REASON_CARD_NOT_FOUND = "card_not_found";
+    public static final String REASON_ACCOUNT_NOT_FOUND = "account_not_found";
+    public static final String REASON_ACCOUNT_EXPIRED = "account_expired";
+    public static final String REASON_OVERLIMIT = "overlimit";
+    public static final String REASON_INVALID_DATE = "invalid_date";
+    public static final String REASON_INVALID_CODE = "invalid_code";
+    public static final String REASON_INVALID_REQUEST = "invalid_request";
+    public static final String REASON_NOT_CONFIRMED = "not_confirmed";
+    
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> reportTimers = new ConcurrentHashMap<>();
+    
+    public TransactionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * Runs one stage of a posting and records its duration, whether it completes or throws
+     */
+    public <T> T timeStage(String stage, Supplier<T> work) {
+        return stageTimer(stage).record(work);
+    }
+    
+    public void timeStage(String stage, Runnable work) {
+        stageTimer(stage).record(work);
+    }
+    
+    /**
+     * Starts timing work whose end is not inside a single block, e.g. the commit
+     */
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+    
+    public void stopStage(Timer.Sample sample, String stage) {
+        sample.stop(stageTimer(stage));
+    }
+    
+    public void recordRejection(String reason) {
+        rejectionCounters.computeIfAbsent(reason, key -> Counter.builder("transactions.posting.rejections")
+                .description("Transactions rejected by posting validation, by reason")
+                .tag("reason", key)
+                .register(meterRegistry)).increment();
+    }
+    
+    /**
+     * @param reportType MONTHLY, YEARLY or CUSTOM
+     * @param mode list, stream or summary
+     */
+    public Timer reportTimer(String reportType, String mode) {
+        return reportTimers.computeIfAbsent(reportType + '/' + mode, key -> Timer.builder("transactions.report")
+                .description("Time to generate a transaction report")
+                .tag("type", reportType)
+                .tag("mode", mode)
+                .register(meterRegistry));
+    }
+    
+    private Timer stageTimer(String stage) {
+        return stageTimers.computeIfAbsent(stage, key -> Timer.builder("transactions.posting.stage")
+                .description("Time spent in each stage of posting a transaction")
+                .tag("stage", key)
+                .register(meterRegistry));
+    }
+}
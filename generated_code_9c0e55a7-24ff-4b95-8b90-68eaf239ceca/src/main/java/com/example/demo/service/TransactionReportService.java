@@ -1,28 +1,274 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.TransactionAccountSummaryDTO;
+import com.example.demo.dto.TransactionDailySummaryDTO;
+import com.example.demo.dto.TransactionMerchantSummaryDTO;
 import com.example.demo.dto.TransactionReportRequestDTO;
+import com.example.demo.dto.TransactionSummaryDTO;
 import com.example.demo.entity.Transaction;
 import com.example.demo.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionReportService {
     
+    private static final String CSV_HEADER = "transactionId,cardNumber,accountId,typeCode,categoryCode,source,description,"
+            + "amount,merchantId,merchantName,merchantCity,merchantZip,originalTimestamp,processedTimestamp";
+    private static final DateTimeFormatter CSV_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getOriginalTimestamp)
+            .thenComparing(Transaction::getTransactionId)
+            .reversed();
+    
     private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
     private final DateValidationService dateValidationService;
+    private final ObjectMapper objectMapper;
+    private final TransactionRollupService transactionRollupService;
+    private final TransactionMetrics transactionMetrics;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${transaction.report.stream-chunk-size:500}")
+    private int streamChunkSize;
+    
+    /**
+     * Output formats of the streaming report
+     */
+    public enum StreamFormat {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+        
+        private final String mediaType;
+        
+        StreamFormat(String mediaType) {
+            this.mediaType = mediaType;
+        }
+        
+        public String getMediaType() {
+            return mediaType;
+        }
+        
+        public static StreamFormat from(String format) {
+            for (StreamFormat value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new RuntimeException("Invalid report format. Valid values are NDJSON or CSV");
+        }
+    }
+    
+    /**
+     * Date window covered by a report
+     */
+    public record ReportWindow(String reportType, LocalDate startDate, LocalDate endDate) {
+        
+        public LocalDateTime startDateTime() {
+            return startDate.atStartOfDay();
+        }
+        
+        public LocalDateTime endDateTime() {
+            return endDate.atTime(23, 59, 59);
+        }
+        
+        /**
+         * The same window for the archive, whose end is exclusive
+         */
+        public TransactionArchive.Filter archiveFilter() {
+            return TransactionArchive.Filter.window(startDateTime(), endDateTime().plusNanos(1));
+        }
+    }
     
     @Transactional(readOnly = true)
     public List<Transaction> generateReport(TransactionReportRequestDTO request) {
+        ReportWindow window = resolveReportWindow(request);
+        
+        List<Transaction> transactions = transactionMetrics.reportTimer(window.reportType(), "list")
+                .record(() -> TransactionArchive.merge(
+                        transactionRepository.findByDateRange(window.startDateTime(), window.endDateTime()),
+                        transactionArchive.findAll(window.archiveFilter()), NEWEST_FIRST, Integer.MAX_VALUE));
+        log.info("Report generated with {} transactions", transactions.size());
+        
+        return transactions;
+    }
+    
+    /**
+     * Totals by type and category for the report window, answered from the daily rollup so the
+     * cost depends on the number of days in the window rather than the number of transactions
+     */
+    public List<TransactionSummaryDTO> generateSummaryReport(TransactionReportRequestDTO request) {
+        ReportWindow window = resolveReportWindow(request);
+        
+        List<TransactionSummaryDTO> summary = transactionMetrics.reportTimer(window.reportType(), "summary")
+                .record(() -> transactionRollupService.summarize(window.startDate(), window.endDate()));
+        log.info("Summary report generated with {} rows", summary.size());
+        
+        return summary;
+    }
+    
+    /**
+     * Totals of an aggregate report, with the group rows
+     *
+     * @param rows TransactionSummaryDTO, TransactionMerchantSummaryDTO, TransactionAccountSummaryDTO
+     *             or TransactionDailySummaryDTO rows, depending on groupBy
+     */
+    public record AggregateReport(ReportWindow window, String groupBy, List<?> rows, long transactionCount, BigDecimal totalAmount) {
+    }
+    
+    /**
+     * Totals grouped by type and category, merchant, account or day for the report window, so
+     * only one row per group leaves the database. All but merchant totals come from the daily
+     * rollup, which already covers archived transactions; merchant totals are grouped from the
+     * transactions table and the archive's rows are added to them.
+     */
+    @Transactional(readOnly = true)
+    public AggregateReport generateAggregateReport(TransactionReportRequestDTO request) {
+        ReportWindow window = resolveReportWindow(request);
+        if (request.getGroupBy() == null) {
+            throw new RuntimeException("Group by is required for aggregate reports");
+        }
+        String groupBy = request.getGroupBy().toUpperCase();
+        
+        AggregateReport report = transactionMetrics.reportTimer(window.reportType(), "aggregate").record(() -> switch (groupBy) {
+            case "TYPE_CATEGORY" -> aggregate(window, groupBy, transactionRollupService.summarize(window.startDate(), window.endDate()),
+                    TransactionSummaryDTO::getTransactionCount, TransactionSummaryDTO::getTotalAmount);
+            case "MERCHANT" -> aggregate(window, groupBy, summarizeByMerchant(window),
+                    TransactionMerchantSummaryDTO::getTransactionCount, TransactionMerchantSummaryDTO::getTotalAmount);
+            case "ACCOUNT" -> aggregate(window, groupBy, transactionRollupService.summarizeByAccount(window.startDate(), window.endDate()),
+                    TransactionAccountSummaryDTO::getTransactionCount, TransactionAccountSummaryDTO::getTotalAmount);
+            case "DAY" -> aggregate(window, groupBy, transactionRollupService.summarizeByDay(window.startDate(), window.endDate()),
+                    TransactionDailySummaryDTO::getTransactionCount, TransactionDailySummaryDTO::getTotalAmount);
+            default -> throw new RuntimeException("Invalid group by. Valid values are TYPE_CATEGORY, MERCHANT, ACCOUNT, or DAY");
+        });
+        log.info("{} aggregate report generated with {} rows", groupBy, report.rows().size());
+        
+        return report;
+    }
+    
+    private static <R> AggregateReport aggregate(ReportWindow window, String groupBy, List<R> rows,
+                                                 Function<R, Long> countOf, Function<R, BigDecimal> totalOf) {
+        long transactionCount = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (R row : rows) {
+            transactionCount += countOf.apply(row);
+            totalAmount = totalAmount.add(totalOf.apply(row));
+        }
+        return new AggregateReport(window, groupBy, rows, transactionCount, totalAmount);
+    }
+    
+    /**
+     * Merchant totals, largest total amount first
+     */
+    private List<TransactionMerchantSummaryDTO> summarizeByMerchant(ReportWindow window) {
+        Map<Long, TransactionMerchantSummaryDTO> merchants = new HashMap<>();
+        for (TransactionMerchantSummaryDTO row : transactionRepository.summarizeByMerchant(window.startDateTime(), window.endDateTime())) {
+            merchants.put(row.getMerchantId(), row);
+        }
+        try (Stream<Transaction> archived = transactionArchive.streamNewestFirst(window.archiveFilter())) {
+            archived.forEach(transaction -> {
+                TransactionMerchantSummaryDTO row = merchants.computeIfAbsent(transaction.getMerchantId(),
+                        merchantId -> new TransactionMerchantSummaryDTO(merchantId, transaction.getMerchantName(), 0L, BigDecimal.ZERO));
+                row.setTransactionCount(row.getTransactionCount() + 1);
+                row.setTotalAmount(row.getTotalAmount().add(transaction.getAmount()));
+            });
+        }
+        List<TransactionMerchantSummaryDTO> rows = new ArrayList<>(merchants.values());
+        rows.sort(Comparator.comparing(TransactionMerchantSummaryDTO::getTotalAmount).reversed()
+                .thenComparing(TransactionMerchantSummaryDTO::getMerchantId));
+        return rows;
+    }
+    
+    /**
+     * Writes the report straight to the output stream, one transaction per line. Rows are read
+     * through a forward-only cursor and the persistence context is cleared every chunk, so memory
+     * use does not depend on the size of the date range. Archived rows are merged in one month at a time.
+     *
+     * @param window The date window, as returned by resolveReportWindow
+     * @param format The output format
+     * @param outputStream The response body; it is flushed but not closed
+     * @return the number of transactions written
+     */
+    @Transactional(readOnly = true)
+    public long writeReport(ReportWindow window, StreamFormat format, OutputStream outputStream) throws IOException {
+        log.info("Streaming {} report from {} to {}", format, window.startDate(), window.endDate());
+        
+        Timer.Sample sample = transactionMetrics.startTimer();
+        long count = 0;
+        try (Stream<Transaction> transactions = transactionRepository.streamByDateRange(window.startDateTime(), window.endDateTime());
+             Stream<Transaction> archived = transactionArchive.streamNewestFirst(window.archiveFilter())) {
+            Iterator<Transaction> iterator = TransactionArchive.merge(transactions.iterator(), archived.iterator(), NEWEST_FIRST);
+            if (format == StreamFormat.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                while (iterator.hasNext()) {
+                    writeCsvRow(writer, iterator.next());
+                    count = detachChunk(count + 1);
+                }
+                writer.flush();
+            } else {
+                SequenceWriter writer = objectMapper.writer()
+                        .withRootValueSeparator("\n")
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .writeValues(outputStream);
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                    count = detachChunk(count + 1);
+                }
+                writer.flush();
+                if (count > 0) {
+                    outputStream.write('\n');
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        outputStream.flush();
+        sample.stop(transactionMetrics.reportTimer(window.reportType(), "stream"));
+        log.info("Streamed report with {} transactions", count);
+        return count;
+    }
+    
+    /**
+     * Validates the request and works out the date window it covers
+     */
+    public ReportWindow resolveReportWindow(TransactionReportRequestDTO request) {
         log.info("Generating {} transaction report", request.getReportType());
         
         // Validate confirmation
@@ -54,11 +300,10 @@ public class TransactionReportService {
                 }
                 
                 // Validate dates
-                String dateFormat = "yyyy-MM-dd";
-                if (!dateValidationService.validateDate(request.getStartDate().toString(), dateFormat)) {
+                if (!dateValidationService.validateDate(request.getStartDate())) {
                     throw new RuntimeException("Invalid start date format...");
                 }
-                if (!dateValidationService.validateDate(request.getEndDate().toString(), dateFormat)) {
+                if (!dateValidationService.validateDate(request.getEndDate())) {
                     throw new RuntimeException("Invalid end date format...");
                 }
                 
@@ -76,12 +321,63 @@ public class TransactionReportService {
                 throw new RuntimeException("Invalid report type. Valid values are MONTHLY, YEARLY, or CUSTOM");
         }
         
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
-        
-        List<Transaction> transactions = transactionRepository.findByDateRange(startDateTime, endDateTime);
-        log.info("Report generated with {} transactions", transactions.size());
-        
-        return transactions;
+        return new ReportWindow(request.getReportType().toUpperCase(), startDate, endDate);
+    }
+    
+    private long detachChunk(long count) {
+        // Written rows are no longer needed; drop them so the persistence context stays small
+        if (count % streamChunkSize == 0) {
+            entityManager.clear();
+        }
+        return count;
+    }
+    
+    private void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(transaction.getTransactionId());
+        writer.write(',');
+        writer.write(transaction.getCardNumber());
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getAccountId()));
+        writer.write(',');
+        writeCsvField(writer, transaction.getTypeCode());
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getCategoryCode()));
+        writer.write(',');
+        writeCsvField(writer, transaction.getSource());
+        writer.write(',');
+        writeCsvField(writer, transaction.getDescription());
+        writer.write(',');
+        writer.write(transaction.getAmount().toPlainString());
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getMerchantId()));
+        writer.write(',');
+        writeCsvField(writer, transaction.getMerchantName());
+        writer.write(',');
+        writeCsvField(writer, transaction.getMerchantCity());
+        writer.write(',');
+        writeCsvField(writer, transaction.getMerchantZip());
+        writer.write(',');
+        writer.write(CSV_TIMESTAMP_FORMAT.format(transaction.getOriginalTimestamp()));
+        writer.write(',');
+        writer.write(CSV_TIMESTAMP_FORMAT.format(transaction.getProcessedTimestamp()));
+        writer.write('\n');
+    }
+    
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
     }
 }
@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TransactionAccountSummaryDTO;
+import com.example.demo.dto.TransactionDailySummaryDTO;
+import com.example.demo.dto.TransactionSummaryDTO;
+import com.example.demo.entity.Transaction;
+import com.example.demo.entity.TransactionDailyRollup;
+import com.example.demo.repository.TransactionDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Maintains transaction_daily_rollup, the per-day, per-account totals by type and category
+ * that summary reports read instead of scanning raw transactions. Postings update their
+ * rollup rows in the same database transaction as the insert, so the rollup never drifts
+ * from the transactions table; rebuild() recomputes a date range from scratch, archived
+ * transactions included.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionRollupService {
+    
+    private final TransactionDailyRollupRepository rollupRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final TransactionArchive transactionArchive;
+    
+    /**
+     * Adds a posted transaction to its daily rollup row
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Transaction transaction) {
+        add(transaction.getOriginalTimestamp().toLocalDate(), transaction.getAccountId(), transaction.getTypeCode(),
+                transaction.getCategoryCode(), 1, transaction.getAmount());
+    }
+    
+    /**
+     * Adds posted transactions to their daily rollup rows, touching each row once
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Collection<Transaction> transactions) {
+        addAll(transactions.iterator());
+    }
+    
+    /**
+     * Recomputes the rollup rows of a date range from the transactions table and the archive.
+     * Postings into the range while the rebuild runs may fail on the rebuilt rows, so run it when
+     * the range is quiet.
+     *
+     * @return the number of rollup rows written
+     */
+    @Transactional
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("Start date must be before or equal to end date");
+        }
+        int deleted = rollupRepository.deleteByDateRange(startDate, endDate);
+        int written = rollupRepository.rebuild(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        try (Stream<Transaction> archived = transactionArchive.streamNewestFirst(TransactionArchive.Filter.window(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay()))) {
+            written += addAll(archived.iterator());
+        }
+        log.info("Rebuilt daily rollup from {} to {}: {} rows removed, {} rows written", startDate, endDate, deleted, written);
+        return written;
+    }
+    
+    /**
+     * Totals by type and category over a date range, read from the rollup only
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionSummaryDTO> summarize(LocalDate startDate, LocalDate endDate) {
+        List<TransactionSummaryDTO> summary = rollupRepository.summarizeByDateRange(startDate, endDate);
+        for (TransactionSummaryDTO row : summary) {
+            row.setTypeDescription(referenceDataRegistry.typeDescription(row.getTypeCode()));
+            row.setCategoryDescription(referenceDataRegistry.categoryDescription(row.getTypeCode(), row.getCategoryCode()));
+        }
+        return summary;
+    }
+    
+    /**
+     * Totals by account over a date range, read from the rollup only
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionAccountSummaryDTO> summarizeByAccount(LocalDate startDate, LocalDate endDate) {
+        return rollupRepository.summarizeByAccount(startDate, endDate);
+    }
+    
+    /**
+     * Totals by day over a date range, read from the rollup only; days without transactions are left out
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionDailySummaryDTO> summarizeByDay(LocalDate startDate, LocalDate endDate) {
+        return rollupRepository.summarizeByDay(startDate, endDate);
+    }
+    
+    /**
+     * Sums transactions into their daily rollup rows, touching each row once
+     *
+     * @return the number of rollup rows touched
+     */
+    private int addAll(Iterator<Transaction> transactions) {
+        Map<TransactionDailyRollup.TransactionDailyRollupId, TransactionDailyRollup> totals = new LinkedHashMap<>();
+        while (transactions.hasNext()) {
+            Transaction transaction = transactions.next();
+            TransactionDailyRollup.TransactionDailyRollupId id = new TransactionDailyRollup.TransactionDailyRollupId(
+                    transaction.getOriginalTimestamp().toLocalDate(), transaction.getAccountId(),
+                    transaction.getTypeCode(), transaction.getCategoryCode());
+            TransactionDailyRollup total = totals.computeIfAbsent(id, key -> new TransactionDailyRollup(
+                    key.getRollupDate(), key.getAccountId(), key.getTypeCode(), key.getCategoryCode(), 0L, BigDecimal.ZERO, null, null));
+            total.setTransactionCount(total.getTransactionCount() + 1);
+            total.setTotalAmount(total.getTotalAmount().add(transaction.getAmount()));
+        }
+        for (TransactionDailyRollup total : totals.values()) {
+            add(total.getRollupDate(), total.getAccountId(), total.getTypeCode(), total.getCategoryCode(),
+                    total.getTransactionCount(), total.getTotalAmount());
+        }
+        return totals.size();
+    }
+    
+    private void add(LocalDate rollupDate, Long accountId, String typeCode, Integer categoryCode, long count, BigDecimal amount) {
+        // Rows of an account are only written under its posting lock, so update-then-insert cannot race locally
+        int updated = rollupRepository.increment(rollupDate, accountId, typeCode, categoryCode, count, amount, LocalDateTime.now());
+        if (updated == 0) {
+            rollupRepository.insert(rollupDate, accountId, typeCode, categoryCode, count, amount);
+        }
+    }
+}
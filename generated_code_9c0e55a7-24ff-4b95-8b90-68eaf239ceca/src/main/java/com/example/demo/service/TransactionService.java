@@ -1,24 +1,47 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.ResourceVersionDTO;
+import com.example.demo.dto.TransactionBatchItemResultDTO;
 import com.example.demo.dto.TransactionCreateDTO;
 import com.example.demo.dto.TransactionDTO;
 import com.example.demo.dto.TransactionListDTO;
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
+import com.example.demo.service.CardRoutingCache.CardRoute;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,75 +49,439 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TransactionService {
     
+    // Bounds of an open date window, within the range of a SQL TIMESTAMP
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    
+    // Order of the listings, as ORDER BY originalTimestamp DESC, transactionId DESC
+    private static final Comparator<TransactionDTO> DETAILS_NEWEST_FIRST = Comparator
+            .comparing(TransactionDTO::getOriginalTimestamp)
+            .thenComparing(TransactionDTO::getTransactionId)
+            .reversed();
+    private static final Comparator<TransactionListDTO> LIST_ITEMS_NEWEST_FIRST = Comparator
+            .comparing(TransactionListDTO::getTransactionDate)
+            .thenComparing(TransactionListDTO::getTransactionId)
+            .reversed();
+    
     private final TransactionRepository transactionRepository;
-    private final CardRepository cardRepository;
+    private final TransactionArchive transactionArchive;
+    private final CardRoutingCache cardRoutingCache;
+    private final CardActivityCache cardActivityCache;
     private final AccountRepository accountRepository;
     private final TransactionCategoryBalanceRepository categoryBalanceRepository;
+    private final CategoryBalanceWriteBehind categoryBalanceWriteBehind;
     private final DateValidationService dateValidationService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountConcurrencyGuard accountConcurrencyGuard;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final TransactionRollupService transactionRollupService;
+    private final TransactionAnalyticsEngine transactionAnalyticsEngine;
+    private final TransactionMetrics transactionMetrics;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final Validator validator;
+    
+    @Value("${transaction.batch.max-size:5000}")
+    private int batchMaxSize;
+    
+    @Value("${transaction.page.max-size:1000}")
+    private int pageMaxSize;
     
     @Transactional(readOnly = true)
     public TransactionDTO getTransactionById(String transactionId) {
         log.info("Fetching transaction with ID: {}", transactionId);
-        Transaction transaction = transactionRepository.findById(transactionId)
+        TransactionDTO transaction = transactionRepository.findDetailById(transactionId)
+                .or(() -> transactionArchive.findById(transactionId).map(this::mapToDTO))
                 .orElseThrow(() -> new RuntimeException("Transaction ID NOT found..."));
-        return mapToDTO(transaction);
+        return describe(transaction);
     }
     
     @Transactional(readOnly = true)
     public Page<TransactionListDTO> listTransactions(int page, int size) {
         log.info("Listing transactions - page: {}, size: {}", page, size);
         Pageable pageable = PageRequest.of(page, size);
-        Page<Transaction> transactions = transactionRepository.findAllByOrderByOriginalTimestampDesc(pageable);
-        return transactions.map(this::mapToListDTO);
+        Page<TransactionListDTO> transactions;
+        if (transactionArchive.isEmpty()) {
+            transactions = transactionRepository.findListItems(pageable);
+        } else {
+            // Both tiers are read from their newest row to the end of the page; the cursor listing avoids that cost
+            int rows = Math.toIntExact(pageable.getOffset() + size);
+            List<TransactionListDTO> merged = withArchived(transactionRepository.findNewestListItems(PageRequest.of(0, rows)),
+                    transactionArchive.findNewest(TransactionArchive.Filter.all(), null, null, rows), this::mapToListItem,
+                    LIST_ITEMS_NEWEST_FIRST, rows);
+            List<TransactionListDTO> content = merged.size() > pageable.getOffset()
+                    ? new ArrayList<>(merged.subList((int) pageable.getOffset(), merged.size()))
+                    : List.of();
+            transactions = new PageImpl<>(content, pageable, transactionRepository.count() + transactionArchive.count());
+        }
+        transactions.forEach(this::describe);
+        return transactions;
+    }
+    
+    /**
+     * Lists transactions newest first using keyset pagination on (originalTimestamp, transactionId),
+     * so deep pages cost the same as the first one
+     *
+     * @param cursor A cursor from a previous page, or null/blank for the newest page
+     * @param size The page size
+     * @param includeTotal Whether to run the COUNT query for totalItems
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TransactionListDTO> listTransactions(String cursor, int size, boolean includeTotal) {
+        log.info("Listing transactions - cursor: {}, size: {}", cursor, size);
+        TransactionArchive.Filter all = TransactionArchive.Filter.all();
+        CursorPageDTO<TransactionListDTO> page = seekPage(TransactionCursor.decode(cursor), size,
+                pageable -> withArchived(transactionRepository.findNewestListItems(pageable),
+                        transactionArchive.findNewest(all, null, null, pageable.getPageSize()),
+                        this::mapToListItem, LIST_ITEMS_NEWEST_FIRST, pageable.getPageSize()),
+                (timestamp, transactionId, pageable) -> withArchived(transactionRepository.findListItemsOlderThan(timestamp, transactionId, pageable),
+                        transactionArchive.findNewest(all, timestamp, transactionId, pageable.getPageSize()),
+                        this::mapToListItem, LIST_ITEMS_NEWEST_FIRST, pageable.getPageSize()),
+                (timestamp, transactionId, pageable) -> withArchived(transactionRepository.findListItemsNewerThan(timestamp, transactionId, pageable),
+                        transactionArchive.findOldest(all, timestamp, transactionId, pageable.getPageSize()),
+                        this::mapToListItem, LIST_ITEMS_NEWEST_FIRST.reversed(), pageable.getPageSize()),
+                TransactionListDTO::getTransactionDate, TransactionListDTO::getTransactionId);
+        page.getContent().forEach(this::describe);
+        if (includeTotal) {
+            page.setTotalItems(transactionRepository.count() + transactionArchive.count());
+        }
+        return page;
     }
     
-    @Transactional
     public TransactionDTO createTransaction(TransactionCreateDTO createDTO) {
+        return createTransaction(createDTO, transactionId -> {
+        });
+    }
+    
+    /**
+     * Posts a transaction at most once per idempotency key: a request repeating the key gets the
+     * transaction posted under it back, without touching accounts or balances. Rejected requests
+     * don't use up their key.
+     *
+     * @param idempotencyKey Key chosen by the client for this request, or null
+     * @return the transaction, replayed when an earlier request with the key posted it
+     */
+    public IdempotencyKeyStore.Outcome createTransaction(TransactionCreateDTO createDTO, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return new IdempotencyKeyStore.Outcome(createTransaction(createDTO), false);
+        }
+        long fingerprint = IdempotencyKeyStore.fingerprint(createDTO);
+        return idempotencyKeyStore.execute(idempotencyKey, fingerprint,
+                () -> createTransaction(createDTO, transactionId -> idempotencyKeyStore.record(idempotencyKey, fingerprint, transactionId)),
+                this::getTransactionById);
+    }
+    
+    /**
+     * @param claim Called first in the posting's database transaction, with the ID reserved for it
+     */
+    private TransactionDTO createTransaction(TransactionCreateDTO createDTO, Consumer<String> claim) {
         log.info("Creating new transaction for card: {}", createDTO.getCardNumber());
         
-        // Validate confirmation
-        if (!createDTO.getConfirmation().equalsIgnoreCase("Y")) {
-            throw new RuntimeException("Confirm to add this transaction...");
-        }
+        transactionMetrics.timeStage(TransactionMetrics.STAGE_VALIDATION, () -> {
+            // Validate confirmation
+            if (!createDTO.getConfirmation().equalsIgnoreCase("Y")) {
+                throw rejected(TransactionMetrics.REASON_NOT_CONFIRMED, "Confirm to add this transaction...");
+            }
+            
+            // Validate type and category codes before anything is reserved or written
+            String invalidCode = referenceDataRegistry.validate(createDTO.getTypeCode(), createDTO.getCategoryCode());
+            if (invalidCode != null) {
+                throw rejected(TransactionMetrics.REASON_INVALID_CODE, invalidCode);
+            }
+        });
         
-        // Validate card number
-        Card card = cardRepository.findById(createDTO.getCardNumber())
-                .orElseThrow(() -> new RuntimeException("Card Number NOT found..."));
+        // Validate card number (resolved from the routing cache, no DB round-trip on a hit)
+        CardRoute card = transactionMetrics.timeStage(TransactionMetrics.STAGE_CARD_LOOKUP,
+                () -> cardRoutingCache.find(createDTO.getCardNumber()))
+                .orElseThrow(() -> rejected(TransactionMetrics.REASON_CARD_NOT_FOUND, "Card Number NOT found..."));
         
+        // Reserve the ID before the posting transaction starts so a block refill
+        // never waits for a second pooled connection while holding the first
+        String transactionId = transactionMetrics.timeStage(TransactionMetrics.STAGE_ID_ALLOCATION,
+                transactionIdGenerator::nextTransactionId);
+        
+        // Serialize postings per account; each attempt is a full transaction so a retry re-reads the account
+        return accountConcurrencyGuard.execute(card.accountId(), () -> {
+            AtomicReference<Timer.Sample> commit = new AtomicReference<>();
+            TransactionDTO posted = transactionTemplate.execute(status -> {
+                // Claimed before any balance work, so a concurrent duplicate fails fast
+                claim.accept(transactionId);
+                TransactionDTO dto = postTransaction(createDTO, card, transactionId);
+                commit.set(transactionMetrics.startTimer());
+                return dto;
+            });
+            transactionMetrics.stopStage(commit.get(), TransactionMetrics.STAGE_COMMIT);
+            cardActivityCache.record(posted);
+            return posted;
+        });
+    }
+    
+    private TransactionDTO postTransaction(TransactionCreateDTO createDTO, CardRoute card, String transactionId) {
         // Validate account
-        Account account = accountRepository.findById(card.getAccountId())
-                .orElseThrow(() -> new RuntimeException("Account ID NOT found..."));
+        Account account = transactionMetrics.timeStage(TransactionMetrics.STAGE_ACCOUNT_READ,
+                () -> accountRepository.findById(card.accountId()))
+                .orElseThrow(() -> rejected(TransactionMetrics.REASON_ACCOUNT_NOT_FOUND, "Account ID NOT found..."));
+        
+        Rejection rejection = transactionMetrics.timeStage(TransactionMetrics.STAGE_POSTING_RULES,
+                () -> checkPostingRules(account, createDTO));
+        if (rejection != null) {
+            throw new RuntimeException(rejection.message());
+        }
+        
+        // Each write stage is flushed on its own so its statements are timed in that stage, not at commit
+        Transaction transaction = transactionMetrics.timeStage(TransactionMetrics.STAGE_INSERT,
+                () -> transactionRepository.saveAndFlush(buildTransaction(createDTO, card.accountId(), transactionId)));
+        
+        transactionMetrics.timeStage(TransactionMetrics.STAGE_BALANCE_UPDATE, () -> {
+            // Update account balances
+            updateAccountBalances(account, createDTO.getAmount());
+            
+            // Update category balances
+            updateCategoryBalances(card.accountId(), transactionId, createDTO.getTypeCode(),
+                    createDTO.getCategoryCode(), createDTO.getAmount());
+        });
+        
+        // Update daily rollup
+        transactionMetrics.timeStage(TransactionMetrics.STAGE_ROLLUP_UPDATE, () -> transactionRollupService.record(transaction));
+        transactionAnalyticsEngine.record(transaction);
+        
+        log.info("Transaction created successfully with ID: {}", transactionId);
+        return mapToDTO(transaction);
+    }
+    
+    /**
+     * Posts a batch of transactions. Each item is validated on its own and the accepted ones are
+     * written in one transaction: cards and accounts are prefetched with IN queries, transactions
+     * are inserted in JDBC batches and every account and category balance is updated once.
+     * Items are applied per account in submission order, so limits are checked exactly as if
+     * they had been posted one by one.
+     *
+     * @param createDTOs The transactions to post
+     * @return one accept/reject result per submitted item, in submission order
+     */
+    public List<TransactionBatchItemResultDTO> createTransactions(List<TransactionCreateDTO> createDTOs) {
+        return createTransactions(createDTOs, null, null);
+    }
+    
+    /**
+     * Posts a batch of transactions under IDs assigned upstream, as carried by a daily transaction
+     * file. The IDs must be unique and not yet posted; a duplicate fails the whole batch.
+     *
+     * @param transactionIds One ID per item, or null to generate them
+     * @param onPosted Called in the posting's database transaction with the IDs of the accepted items, or null
+     */
+    public List<TransactionBatchItemResultDTO> createTransactions(List<TransactionCreateDTO> createDTOs, List<String> transactionIds,
+                                                                  Consumer<List<String>> onPosted) {
+        log.info("Creating batch of {} transactions", createDTOs.size());
+        
+        if (createDTOs.isEmpty()) {
+            throw new RuntimeException("Batch must contain at least one transaction...");
+        }
+        if (createDTOs.size() > batchMaxSize) {
+            throw new RuntimeException("Batch must not contain more than " + batchMaxSize + " transactions...");
+        }
+        if (transactionIds != null && transactionIds.size() != createDTOs.size()) {
+            throw new RuntimeException("Batch must have one transaction ID per transaction...");
+        }
+        
+        TransactionBatchItemResultDTO[] results = new TransactionBatchItemResultDTO[createDTOs.size()];
+        
+        // Resolve every referenced card; cache misses are loaded with a single IN query
+        Set<String> cardNumbers = new HashSet<>();
+        for (TransactionCreateDTO createDTO : createDTOs) {
+            if (createDTO != null && createDTO.getCardNumber() != null) {
+                cardNumbers.add(createDTO.getCardNumber());
+            }
+        }
+        Map<String, CardRoute> cards = cardRoutingCache.findAll(cardNumbers);
+        
+        // Group the items that pass stateless validation by account, keeping submission order
+        Map<Long, List<Integer>> itemsByAccount = new TreeMap<>();
+        for (int i = 0; i < createDTOs.size(); i++) {
+            TransactionCreateDTO createDTO = createDTOs.get(i);
+            Rejection rejection = validateBatchItem(createDTO);
+            CardRoute card = rejection == null ? cards.get(createDTO.getCardNumber()) : null;
+            if (rejection == null && card == null) {
+                rejection = rejection(TransactionMetrics.REASON_CARD_NOT_FOUND, "Card Number NOT found...");
+            }
+            if (rejection != null) {
+                results[i] = TransactionBatchItemResultDTO.rejected(i, rejection.reason(), rejection.message());
+                continue;
+            }
+            itemsByAccount.computeIfAbsent(card.accountId(), accountId -> new ArrayList<>()).add(i);
+        }
+        
+        if (!itemsByAccount.isEmpty()) {
+            // Reserve IDs before the posting transaction starts, as in createTransaction
+            String[] postingIds = new String[createDTOs.size()];
+            for (List<Integer> indexes : itemsByAccount.values()) {
+                for (int i : indexes) {
+                    postingIds[i] = transactionIds == null ? transactionIdGenerator.nextTransactionId() : transactionIds.get(i);
+                }
+            }
+            
+            Map<Integer, TransactionBatchItemResultDTO> posted = accountConcurrencyGuard.executeAll(itemsByAccount.keySet(),
+                    () -> transactionTemplate.execute(status -> {
+                        Map<Integer, TransactionBatchItemResultDTO> batchResults = postBatch(createDTOs, itemsByAccount, postingIds);
+                        if (onPosted != null) {
+                            onPosted.accept(batchResults.values().stream()
+                                    .filter(result -> TransactionBatchItemResultDTO.ACCEPTED.equals(result.getStatus()))
+                                    .map(TransactionBatchItemResultDTO::getTransactionId)
+                                    .toList());
+                        }
+                        return batchResults;
+                    }));
+            posted.forEach((i, result) -> results[i] = result);
+            
+            // Reload the recent activity of the cards that received postings on their next read
+            cardActivityCache.invalidateAll(posted.values().stream()
+                    .filter(result -> TransactionBatchItemResultDTO.ACCEPTED.equals(result.getStatus()))
+                    .map(result -> createDTOs.get(result.getIndex()).getCardNumber())
+                    .collect(Collectors.toSet()));
+        }
+        
+        long accepted = Arrays.stream(results)
+                .filter(result -> TransactionBatchItemResultDTO.ACCEPTED.equals(result.getStatus()))
+                .count();
+        log.info("Batch posted: {} accepted, {} rejected", accepted, results.length - accepted);
+        return Arrays.asList(results);
+    }
+    
+    private Map<Integer, TransactionBatchItemResultDTO> postBatch(List<TransactionCreateDTO> createDTOs,
+                                                                 Map<Long, List<Integer>> itemsByAccount,
+                                                                 String[] transactionIds) {
+        Map<Long, Account> accounts = accountRepository.findAllById(itemsByAccount.keySet()).stream()
+                .collect(Collectors.toMap(Account::getAccountId, Function.identity()));
+        Map<Integer, TransactionBatchItemResultDTO> results = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        Map<TransactionCategoryBalance.TransactionCategoryBalanceId, BigDecimal> categoryDeltas = new LinkedHashMap<>();
         
+        for (Map.Entry<Long, List<Integer>> group : itemsByAccount.entrySet()) {
+            Long accountId = group.getKey();
+            Account account = accounts.get(accountId);
+            
+            for (int i : group.getValue()) {
+                TransactionCreateDTO createDTO = createDTOs.get(i);
+                Rejection rejection = account == null
+                        ? rejection(TransactionMetrics.REASON_ACCOUNT_NOT_FOUND, "Account ID NOT found...")
+                        : checkPostingRules(account, createDTO);
+                if (rejection != null) {
+                    results.put(i, TransactionBatchItemResultDTO.rejected(i, rejection.reason(), rejection.message()));
+                    continue;
+                }
+                
+                transactions.add(buildTransaction(createDTO, accountId, transactionIds[i]));
+                // Later items of the same account are checked against the updated cycle totals
+                applyToAccount(account, createDTO.getAmount());
+                categoryDeltas.merge(new TransactionCategoryBalance.TransactionCategoryBalanceId(
+                        accountId, createDTO.getTypeCode(), createDTO.getCategoryCode()), createDTO.getAmount(), BigDecimal::add);
+                results.put(i, TransactionBatchItemResultDTO.accepted(i, transactionIds[i]));
+            }
+        }
+        
+        transactionRepository.saveAll(transactions);
+        transactionRollupService.recordAll(transactions);
+        transactionAnalyticsEngine.recordAll(transactions);
+        
+        // Accounts are managed, so their single aggregated update is flushed at commit
+        if (categoryBalanceWriteBehind.isEnabled()) {
+            if (!transactions.isEmpty()) {
+                categoryBalanceWriteBehind.record(transactions.get(0).getTransactionId(), categoryDeltas);
+            }
+            return results;
+        }
+        Map<TransactionCategoryBalance.TransactionCategoryBalanceId, TransactionCategoryBalance> balances =
+                categoryBalanceRepository.findByAccountIdIn(itemsByAccount.keySet()).stream()
+                        .collect(Collectors.toMap(balance -> new TransactionCategoryBalance.TransactionCategoryBalanceId(
+                                balance.getAccountId(), balance.getTypeCode(), balance.getCategoryCode()), Function.identity()));
+        List<TransactionCategoryBalance> changedBalances = new ArrayList<>(categoryDeltas.size());
+        categoryDeltas.forEach((id, delta) -> {
+            TransactionCategoryBalance balance = balances.getOrDefault(id, new TransactionCategoryBalance(
+                    id.getAccountId(), id.getTypeCode(), id.getCategoryCode(), BigDecimal.ZERO, null, null, null));
+            balance.setBalance(balance.getBalance().add(delta));
+            changedBalances.add(balance);
+        });
+        categoryBalanceRepository.saveAll(changedBalances);
+        
+        return results;
+    }
+    
+    private Rejection validateBatchItem(TransactionCreateDTO createDTO) {
+        if (createDTO == null) {
+            return rejection(TransactionMetrics.REASON_INVALID_REQUEST, "Transaction is required...");
+        }
+        Set<ConstraintViolation<TransactionCreateDTO>> violations = validator.validate(createDTO);
+        if (!violations.isEmpty()) {
+            return rejection(TransactionMetrics.REASON_INVALID_REQUEST, violations.iterator().next().getMessage());
+        }
+        if (!createDTO.getConfirmation().equalsIgnoreCase("Y")) {
+            return rejection(TransactionMetrics.REASON_NOT_CONFIRMED, "Confirm to add this transaction...");
+        }
+        String invalidCode = referenceDataRegistry.validate(createDTO.getTypeCode(), createDTO.getCategoryCode());
+        return invalidCode == null ? null : rejection(TransactionMetrics.REASON_INVALID_CODE, invalidCode);
+    }
+    
+    /**
+     * Applies the posting rules that depend on the account state
+     *
+     * @return the rejection, or null when the transaction may be posted
+     */
+    private Rejection checkPostingRules(Account account, TransactionCreateDTO createDTO) {
         // Validate dates
-        String dateFormat = "yyyy-MM-dd";
-        String originalDateStr = createDTO.getOriginalTimestamp().toLocalDate().toString();
+        LocalDate originalDate = createDTO.getOriginalTimestamp().toLocalDate();
         
-        if (!dateValidationService.validateDate(originalDateStr, dateFormat)) {
-            throw new RuntimeException("Invalid original date format...");
+        if (!dateValidationService.validateDate(originalDate)) {
+            return rejection(TransactionMetrics.REASON_INVALID_DATE, "Invalid original date format...");
         }
         
         // Check if transaction date is before account expiration
-        if (createDTO.getOriginalTimestamp().toLocalDate().isAfter(account.getExpirationDate())) {
-            throw new RuntimeException("Transaction received after account expiration...");
+        if (originalDate.isAfter(account.getExpirationDate())) {
+            return rejection(TransactionMetrics.REASON_ACCOUNT_EXPIRED, "Transaction received after account expiration...");
         }
         
         // Check credit limit
+        if (isOverLimit(account, createDTO.getAmount())) {
+            return rejection(TransactionMetrics.REASON_OVERLIMIT, "Overlimit transaction...");
+        }
+        return null;
+    }
+    
+    /**
+     * Counts the rejection under its reason
+     */
+    private Rejection rejection(String reason, String message) {
+        transactionMetrics.recordRejection(reason);
+        return new Rejection(reason, message);
+    }
+    
+    private RuntimeException rejected(String reason, String message) {
+        return new RuntimeException(rejection(reason, message).message());
+    }
+    
+    /**
+     * Why a transaction was not posted
+     *
+     * @param reason One of the TransactionMetrics.REASON_* values
+     */
+    private record Rejection(String reason, String message) {
+    }
+    
+    /**
+     * Whether adding the amount to the current cycle takes the account over its credit limit
+     */
+    static boolean isOverLimit(Account account, BigDecimal amount) {
         BigDecimal tempBalance = account.getCurrentCycleCredit()
                 .subtract(account.getCurrentCycleDebit())
-                .add(createDTO.getAmount());
-        
-        if (tempBalance.compareTo(account.getCreditLimit()) > 0) {
-            throw new RuntimeException("Overlimit transaction...");
-        }
-        
-        // Generate transaction ID
-        String transactionId = generateTransactionId();
+                .add(amount);
         
-        // Create transaction
+        return tempBalance.compareTo(account.getCreditLimit()) > 0;
+    }
+    
+    private Transaction buildTransaction(TransactionCreateDTO createDTO, Long accountId, String transactionId) {
         Transaction transaction = new Transaction();
         transaction.setTransactionId(transactionId);
         transaction.setCardNumber(createDTO.getCardNumber());
-        transaction.setAccountId(card.getAccountId());
+        transaction.setAccountId(accountId);
         transaction.setTypeCode(createDTO.getTypeCode());
         transaction.setCategoryCode(createDTO.getCategoryCode());
         transaction.setSource(createDTO.getSource());
@@ -106,18 +493,7 @@ public class TransactionService {
         transaction.setMerchantZip(createDTO.getMerchantZip());
         transaction.setOriginalTimestamp(createDTO.getOriginalTimestamp());
         transaction.setProcessedTimestamp(LocalDateTime.now());
-        
-        transaction = transactionRepository.save(transaction);
-        
-        // Update account balances
-        updateAccountBalances(account, createDTO.getAmount());
-        
-        // Update category balances
-        updateCategoryBalances(card.getAccountId(), createDTO.getTypeCode(), 
-                createDTO.getCategoryCode(), createDTO.getAmount());
-        
-        log.info("Transaction created successfully with ID: {}", transactionId);
-        return mapToDTO(transaction);
+        return transaction;
     }
     
     @Transactional(readOnly = true)
@@ -127,38 +503,209 @@ public class TransactionService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
         
-        List<Transaction> transactions = transactionRepository.findByDateRange(startDateTime, endDateTime);
-        return transactions.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        // endDateTime is inclusive, the archive window's end is not
+        List<TransactionDTO> transactions = withArchived(transactionRepository.findDetailsByDateRange(startDateTime, endDateTime),
+                transactionArchive.findAll(TransactionArchive.Filter.window(startDateTime, endDateTime.plusNanos(1))),
+                this::mapToDTO, DETAILS_NEWEST_FIRST, Integer.MAX_VALUE);
+        transactions.forEach(this::describe);
+        return transactions;
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<ResourceVersionDTO> getTransactionVersion(String transactionId) {
+        return transactionRepository.findVersionById(transactionId)
+                .or(() -> transactionArchive.findById(transactionId)
+                        .map(transaction -> new ResourceVersionDTO(0L, transaction.getUpdatedAt())));
+    }
+    
+    /**
+     * Version of a card's history: the version of its account, which every posting to the card bumps
+     */
+    @Transactional(readOnly = true)
+    public Optional<ResourceVersionDTO> getCardHistoryVersion(String cardNumber) {
+        return cardRoutingCache.find(cardNumber).flatMap(card -> accountRepository.findVersionById(card.accountId()));
     }
     
+    /**
+     * Returns one page of a card's history, newest first, optionally limited to a date window.
+     * The window is applied in the query, so clients pass the same dates with every cursor.
+     *
+     * @param startDate First day of the window, or null for no lower bound
+     * @param endDate Last day of the window (inclusive), or null for no upper bound
+     */
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByCardNumber(String cardNumber) {
-        log.info("Fetching transactions for card: {}", cardNumber);
-        List<Transaction> transactions = transactionRepository.findByCardNumberOrderByOriginalTimestampDesc(cardNumber);
-        return transactions.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<TransactionDTO> getTransactionsByCardNumber(String cardNumber, LocalDate startDate, LocalDate endDate,
+                                                                     String cursor, int size) {
+        log.info("Fetching transactions for card: {} - window: {} to {}, cursor: {}, size: {}", cardNumber, startDate, endDate, cursor, size);
+        LocalDateTime from = windowStart(startDate);
+        LocalDateTime until = windowEnd(startDate, endDate);
+        TransactionArchive.Filter archived = TransactionArchive.Filter.card(cardNumber, from, until);
+        CursorPageDTO<TransactionDTO> page = seekPage(TransactionCursor.decode(cursor), size,
+                pageable -> withArchived(transactionRepository.findNewestDetailsByCardNumberAndDateRange(cardNumber, from, until, pageable),
+                        transactionArchive.findNewest(archived, null, null, pageable.getPageSize()),
+                        this::mapToDTO, DETAILS_NEWEST_FIRST, pageable.getPageSize()),
+                (timestamp, transactionId, pageable) -> withArchived(transactionRepository.findDetailsByCardNumberAndDateRangeOlderThan(cardNumber, from, until, timestamp, transactionId, pageable),
+                        transactionArchive.findNewest(archived, timestamp, transactionId, pageable.getPageSize()),
+                        this::mapToDTO, DETAILS_NEWEST_FIRST, pageable.getPageSize()),
+                (timestamp, transactionId, pageable) -> withArchived(transactionRepository.findDetailsByCardNumberAndDateRangeNewerThan(cardNumber, from, until, timestamp, transactionId, pageable),
+                        transactionArchive.findOldest(archived, timestamp, transactionId, pageable.getPageSize()),
+                        this::mapToDTO, DETAILS_NEWEST_FIRST.reversed(), pageable.getPageSize()),
+                TransactionDTO::getOriginalTimestamp, TransactionDTO::getTransactionId);
+        page.getContent().forEach(this::describe);
+        return page;
     }
     
-    private String generateTransactionId() {
-        // Get last transaction and increment ID
-        List<Transaction> lastTransaction = transactionRepository.findAll(PageRequest.of(0, 1)).getContent();
-        if (lastTransaction.isEmpty()) {
-            return String.format("%016d", 1L);
+    /**
+     * Returns the newest transactions of a card. Up to transaction.card-activity.depth they are served
+     * from the card's recent-activity ring, larger limits are read from the database. nextCursor
+     * continues into the older history through the cursor-paginated query.
+     *
+     * @param limit The number of transactions to return, from 1 to the maximum page size
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TransactionDTO> getRecentTransactionsByCardNumber(String cardNumber, int limit) {
+        log.info("Fetching recent transactions for card: {} - limit: {}", cardNumber, limit);
+        if (limit < 1 || limit > pageMaxSize) {
+            throw new RuntimeException("Limit must be between 1 and " + pageMaxSize);
+        }
+        if (limit > cardActivityCache.getDepth()) {
+            return getTransactionsByCardNumber(cardNumber, null, null, null, limit);
         }
         
-        try {
-            long lastId = Long.parseLong(lastTransaction.get(0).getTransactionId());
-            return String.format("%016d", lastId + 1);
-        } catch (NumberFormatException e) {
-            // If parsing fails, generate UUID-based ID
-            return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        CardActivityCache.Activity activity = cardActivityCache.recent(cardNumber, limit, depth -> {
+            List<TransactionDTO> transactions = withArchived(transactionRepository.findNewestDetailsByCardNumber(cardNumber, PageRequest.of(0, depth)),
+                    transactionArchive.findNewest(TransactionArchive.Filter.card(cardNumber, null, null), null, null, depth),
+                    this::mapToDTO, DETAILS_NEWEST_FIRST, depth);
+            transactions.forEach(this::describe);
+            return transactions;
+        });
+        List<TransactionDTO> transactions = activity.transactions();
+        String nextCursor = null;
+        if (activity.hasOlder() && !transactions.isEmpty()) {
+            TransactionDTO last = transactions.get(transactions.size() - 1);
+            nextCursor = TransactionCursor.older(last.getOriginalTimestamp(), last.getTransactionId()).encode();
         }
+        return new CursorPageDTO<>(transactions, nextCursor, null, null);
+    }
+    
+    /**
+     * Returns one page of an account's history across all its cards, newest first, optionally
+     * limited to a date window, as getTransactionsByCardNumber does for one card
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TransactionDTO> getTransactionsByAccountId(Long accountId, LocalDate startDate, LocalDate endDate,
+                                                                    String cursor, int size) {
+        log.info("Fetching transactions for account: {} - window: {} to {}, cursor: {}, size: {}", accountId, startDate, endDate, cursor, size);
+        LocalDateTime from = windowStart(startDate);
+        LocalDateTime until = windowEnd(startDate, endDate);
+        TransactionArchive.Filter archived = TransactionArchive.Filter.account(accountId, from, until);
+        CursorPageDTO<TransactionDTO> page = seekPage(TransactionCursor.decode(cursor), size,
+                pageable -> withArchived(transactionRepository.findNewestDetailsByAccountIdAndDateRange(accountId, from, until, pageable),
+                        transactionArchive.findNewest(archived, null, null, pageable.getPageSize()),
+                        this::mapToDTO, DETAILS_NEWEST_FIRST, pageable.getPageSize()),
+                (timestamp, transactionId, pageable) -> withArchived(transactionRepository.findDetailsByAccountIdAndDateRangeOlderThan(accountId, from, until, timestamp, transactionId, pageable),
+                        transactionArchive.findNewest(archived, timestamp, transactionId, pageable.getPageSize()),
+                        this::mapToDTO, DETAILS_NEWEST_FIRST, pageable.getPageSize()),
+                (timestamp, transactionId, pageable) -> withArchived(transactionRepository.findDetailsByAccountIdAndDateRangeNewerThan(accountId, from, until, timestamp, transactionId, pageable),
+                        transactionArchive.findOldest(archived, timestamp, transactionId, pageable.getPageSize()),
+                        this::mapToDTO, DETAILS_NEWEST_FIRST.reversed(), pageable.getPageSize()),
+                TransactionDTO::getOriginalTimestamp, TransactionDTO::getTransactionId);
+        page.getContent().forEach(this::describe);
+        return page;
+    }
+    
+    private static LocalDateTime windowStart(LocalDate startDate) {
+        return (startDate != null ? startDate : EARLIEST_DATE).atStartOfDay();
+    }
+    
+    /**
+     * @return the exclusive upper bound of the window: the start of the day after endDate
+     */
+    private static LocalDateTime windowEnd(LocalDate startDate, LocalDate endDate) {
+        if (endDate == null) {
+            return LATEST_DATE.atStartOfDay();
+        }
+        if (startDate != null && startDate.isAfter(endDate)) {
+            throw new RuntimeException("Start date must not be after end date...");
+        }
+        return endDate.plusDays(1).atStartOfDay();
+    }
+    
+    /**
+     * Fetches one page of a newest-first history by seeking from the cursor position.
+     * One extra row is read to find out whether another page exists in the paging direction.
+     *
+     * @param timestampOf Reads the originalTimestamp of a row, for the cursors
+     * @param idOf Reads the transactionId of a row, for the cursors
+     */
+    private <R> CursorPageDTO<R> seekPage(TransactionCursor position, int size,
+                                          Function<Pageable, List<R>> firstPage,
+                                          SeekQuery<R> olderThan, SeekQuery<R> newerThan,
+                                          Function<R, LocalDateTime> timestampOf, Function<R, String> idOf) {
+        if (size < 1 || size > pageMaxSize) {
+            throw new RuntimeException("Page size must be between 1 and " + pageMaxSize);
+        }
+        Pageable limit = PageRequest.of(0, size + 1);
+        
+        List<R> rows;
+        boolean hasOlder;
+        boolean hasNewer;
+        if (position == null) {
+            rows = firstPage.apply(limit);
+            hasOlder = rows.size() > size;
+            hasNewer = false;
+        } else if (position.direction() == TransactionCursor.Direction.OLDER) {
+            rows = olderThan.find(position.originalTimestamp(), position.transactionId(), limit);
+            hasOlder = rows.size() > size;
+            hasNewer = true;
+        } else {
+            // Newer rows come back oldest first; trim the look-ahead row and restore newest-first order
+            rows = new ArrayList<>(newerThan.find(position.originalTimestamp(), position.transactionId(), limit));
+            hasNewer = rows.size() > size;
+            hasOlder = true;
+            if (hasNewer) {
+                rows.remove(rows.size() - 1);
+            }
+            Collections.reverse(rows);
+        }
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+        }
+        
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!rows.isEmpty()) {
+            R first = rows.get(0);
+            R last = rows.get(rows.size() - 1);
+            nextCursor = hasOlder ? TransactionCursor.older(timestampOf.apply(last), idOf.apply(last)).encode() : null;
+            prevCursor = hasNewer ? TransactionCursor.newer(timestampOf.apply(first), idOf.apply(first)).encode() : null;
+        }
+        return new CursorPageDTO<>(rows, nextCursor, prevCursor, null);
+    }
+    
+    /**
+     * Merges the archived rows of a query into the rows it read from the transactions table
+     *
+     * @param order The order both lists are in
+     */
+    private <R> List<R> withArchived(List<R> rows, List<Transaction> archived, Function<Transaction, R> mapper,
+                                     Comparator<R> order, int limit) {
+        return TransactionArchive.merge(rows, archived.stream().map(mapper).toList(), order, limit);
+    }
+    
+    @FunctionalInterface
+    private interface SeekQuery<R> {
+        List<R> find(LocalDateTime timestamp, String transactionId, Pageable pageable);
     }
     
     private void updateAccountBalances(Account account, BigDecimal amount) {
+        applyToAccount(account, amount);
+        accountRepository.saveAndFlush(account);
+    }
+    
+    private void applyToAccount(Account account, BigDecimal amount) {
+        // Dirty the account even for a zero amount, so its version keeps versioning its transactions
+        account.setUpdatedAt(LocalDateTime.now());
         account.setCurrentBalance(account.getCurrentBalance().add(amount));
         
         if (amount.compareTo(BigDecimal.ZERO) >= 0) {
@@ -166,28 +713,33 @@ public class TransactionService {
         } else {
             account.setCurrentCycleDebit(account.getCurrentCycleDebit().add(amount.abs()));
         }
-        
-        accountRepository.save(account);
     }
     
-    private void updateCategoryBalances(Long accountId, String typeCode, Integer categoryCode, BigDecimal amount) {
+    private void updateCategoryBalances(Long accountId, String transactionId, String typeCode, Integer categoryCode, BigDecimal amount) {
         TransactionCategoryBalance.TransactionCategoryBalanceId id = 
                 new TransactionCategoryBalance.TransactionCategoryBalanceId(accountId, typeCode, categoryCode);
         
+        if (categoryBalanceWriteBehind.isEnabled()) {
+            categoryBalanceWriteBehind.record(transactionId, Map.of(id, amount));
+            return;
+        }
+        
         TransactionCategoryBalance balance = categoryBalanceRepository.findById(id)
-                .orElse(new TransactionCategoryBalance(accountId, typeCode, categoryCode, BigDecimal.ZERO, null, null));
+                .orElse(new TransactionCategoryBalance(accountId, typeCode, categoryCode, BigDecimal.ZERO, null, null, null));
         
         balance.setBalance(balance.getBalance().add(amount));
-        categoryBalanceRepository.save(balance);
+        categoryBalanceRepository.saveAndFlush(balance);
     }
     
-    private TransactionDTO mapToDTO(Transaction transaction) {
+    TransactionDTO mapToDTO(Transaction transaction) {
         TransactionDTO dto = new TransactionDTO();
         dto.setTransactionId(transaction.getTransactionId());
         dto.setCardNumber(transaction.getCardNumber());
         dto.setAccountId(transaction.getAccountId());
         dto.setTypeCode(transaction.getTypeCode());
+        dto.setTypeDescription(referenceDataRegistry.typeDescription(transaction.getTypeCode()));
         dto.setCategoryCode(transaction.getCategoryCode());
+        dto.setCategoryDescription(referenceDataRegistry.categoryDescription(transaction.getTypeCode(), transaction.getCategoryCode()));
         dto.setSource(transaction.getSource());
         dto.setDescription(transaction.getDescription());
         dto.setAmount(transaction.getAmount());
@@ -200,12 +752,23 @@ public class TransactionService {
         return dto;
     }
     
-    private TransactionListDTO mapToListDTO(Transaction transaction) {
-        TransactionListDTO dto = new TransactionListDTO();
-        dto.setTransactionId(transaction.getTransactionId());
-        dto.setTransactionDate(transaction.getOriginalTimestamp());
-        dto.setDescription(transaction.getDescription());
-        dto.setAmount(transaction.getAmount());
+    private TransactionListDTO mapToListItem(Transaction transaction) {
+        return new TransactionListDTO(transaction.getTransactionId(), transaction.getOriginalTimestamp(),
+                transaction.getDescription(), transaction.getAmount(), transaction.getTypeCode(), transaction.getCategoryCode());
+    }
+    
+    /**
+     * Resolves the descriptions of a projected row from the in-memory reference data
+     */
+    TransactionDTO describe(TransactionDTO dto) {
+        dto.setTypeDescription(referenceDataRegistry.typeDescription(dto.getTypeCode()));
+        dto.setCategoryDescription(referenceDataRegistry.categoryDescription(dto.getTypeCode(), dto.getCategoryCode()));
+        return dto;
+    }
+    
+    TransactionListDTO describe(TransactionListDTO dto) {
+        dto.setTypeDescription(referenceDataRegistry.typeDescription(dto.getTypeCode()));
+        dto.setCategoryDescription(referenceDataRegistry.categoryDescription(dto.getTypeCode(), dto.getCategoryCode()));
         return dto;
     }
 }
@@ -0,0 +1,17 @@
+-- Daily transaction file imports; byte_offset is the checkpoint a restarted import resumes from
+-- and reject_bytes the length of the reject file at that checkpoint
+CREATE TABLE transaction_imports (
+    file_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    file_size BIGINT NOT NULL,
+    byte_offset BIGINT NOT NULL DEFAULT 0,
+    records_read BIGINT NOT NULL DEFAULT 0,
+    records_posted BIGINT NOT NULL DEFAULT 0,
+    records_rejected BIGINT NOT NULL DEFAULT 0,
+    records_skipped BIGINT NOT NULL DEFAULT 0,
+    reject_bytes BIGINT NOT NULL DEFAULT 0,
+    records_per_second DOUBLE PRECISION,
+    status VARCHAR(10) NOT NULL CHECK (status IN ('RUNNING', 'COMPLETED', 'STOPPED', 'FAILED')),
+    error_message VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
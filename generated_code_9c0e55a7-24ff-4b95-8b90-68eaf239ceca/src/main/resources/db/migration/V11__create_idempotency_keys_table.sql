@@ -0,0 +1,10 @@
+-- Idempotency-Key of each transaction posted with one, with a hash of the request it was first used for.
+-- Rows are purged once older than transaction.idempotency.ttl.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(64) NOT NULL PRIMARY KEY,
+    request_hash BIGINT NOT NULL,
+    transaction_id VARCHAR(16) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
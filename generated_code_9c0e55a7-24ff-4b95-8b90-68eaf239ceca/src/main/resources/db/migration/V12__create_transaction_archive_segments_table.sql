@@ -0,0 +1,14 @@
+-- Segment files of the transaction archive. A segment is registered in the same database
+-- transaction that deletes its rows from transactions, so a file without a row here is left
+-- over from an archival that never committed
+CREATE TABLE transaction_archive_segments (
+    file_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    archive_month CHAR(7) NOT NULL,
+    row_count INTEGER NOT NULL,
+    min_original_timestamp TIMESTAMP NOT NULL,
+    max_original_timestamp TIMESTAMP NOT NULL,
+    file_size BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_transaction_archive_segments_month ON transaction_archive_segments(archive_month);
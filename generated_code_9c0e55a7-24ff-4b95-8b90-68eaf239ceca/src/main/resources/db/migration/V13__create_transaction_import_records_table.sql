@@ -0,0 +1,9 @@
+-- Transaction ID of each record posted by a daily transaction file import, written in the posting
+-- transaction, so a replayed batch skips exactly the records this file has already posted
+CREATE TABLE transaction_import_records (
+    file_name VARCHAR(255) NOT NULL,
+    transaction_id VARCHAR(16) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (file_name, transaction_id),
+    FOREIGN KEY (file_name) REFERENCES transaction_imports (file_name)
+);
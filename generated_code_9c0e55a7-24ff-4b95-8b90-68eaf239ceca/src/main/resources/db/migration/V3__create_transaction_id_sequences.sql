@@ -0,0 +1,13 @@
+-- Create transaction_id_sequences table backing block (hi/lo) transaction ID allocation
+CREATE TABLE transaction_id_sequences (
+    sequence_name VARCHAR(50) NOT NULL PRIMARY KEY,
+    next_value BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Seed the transaction sequence past any existing numeric transaction IDs
+INSERT INTO transaction_id_sequences (sequence_name, next_value)
+SELECT 'TRANSACTION', COALESCE(MAX(CAST(transaction_id AS BIGINT)), 0) + 1
+FROM transactions
+WHERE REPLACE(TRANSLATE(transaction_id, '123456789', '000000000'), '0', '') = '';
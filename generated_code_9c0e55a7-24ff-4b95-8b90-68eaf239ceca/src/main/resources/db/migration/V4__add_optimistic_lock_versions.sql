@@ -0,0 +1,3 @@
+-- Add optimistic locking versions to rows updated by transaction posting
+ALTER TABLE accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE transaction_category_balances ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,18 @@
+-- Daily per-account totals by transaction type and category, maintained by transaction posting
+CREATE TABLE transaction_daily_rollup (
+    rollup_date DATE NOT NULL,
+    account_id BIGINT NOT NULL,
+    type_code VARCHAR(2) NOT NULL,
+    category_code INT NOT NULL,
+    transaction_count BIGINT NOT NULL,
+    total_amount DECIMAL(19,2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (rollup_date, account_id, type_code, category_code)
+);
+
+-- Backfill from the transactions already posted
+INSERT INTO transaction_daily_rollup (rollup_date, account_id, type_code, category_code, transaction_count, total_amount)
+SELECT CAST(original_timestamp AS DATE), account_id, type_code, category_code, COUNT(*), SUM(amount)
+FROM transactions
+GROUP BY CAST(original_timestamp AS DATE), account_id, type_code, category_code;
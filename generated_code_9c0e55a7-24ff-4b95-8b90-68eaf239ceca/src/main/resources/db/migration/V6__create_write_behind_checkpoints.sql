@@ -0,0 +1,9 @@
+-- Highest write-ahead log segment whose buffered deltas have been applied, per write-behind buffer
+CREATE TABLE write_behind_checkpoints (
+    checkpoint_name VARCHAR(50) NOT NULL PRIMARY KEY,
+    last_segment BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO write_behind_checkpoints (checkpoint_name, last_segment) VALUES ('CATEGORY_BALANCE', 0);
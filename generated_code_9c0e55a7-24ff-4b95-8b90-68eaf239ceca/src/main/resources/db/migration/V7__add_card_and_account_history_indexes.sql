@@ -0,0 +1,8 @@
+-- Card and account histories filter on the owner and a time window and seek on
+-- (original_timestamp, transaction_id), so one composite index serves filter, range and order
+CREATE INDEX idx_transactions_card_history ON transactions(card_number, original_timestamp, transaction_id);
+CREATE INDEX idx_transactions_account_history ON transactions(account_id, original_timestamp, transaction_id);
+
+-- Covered by the leading columns of the composite indexes
+DROP INDEX idx_transactions_card_number;
+DROP INDEX idx_transactions_account_id;
@@ -0,0 +1,26 @@
+-- Cycle totals of an account at each billing-cycle close
+CREATE TABLE account_statements (
+    account_id BIGINT NOT NULL,
+    cycle_end_date DATE NOT NULL,
+    cycle_credit DECIMAL(19,2) NOT NULL,
+    cycle_debit DECIMAL(19,2) NOT NULL,
+    closing_balance DECIMAL(19,2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (account_id, cycle_end_date),
+    FOREIGN KEY (account_id) REFERENCES accounts(account_id)
+);
+
+-- account_id ranges of a cycle-close run; next_account_id is the checkpoint a restarted run resumes from
+CREATE TABLE cycle_close_partitions (
+    cycle_end_date DATE NOT NULL,
+    partition_index INT NOT NULL,
+    first_account_id BIGINT NOT NULL,
+    last_account_id BIGINT NOT NULL,
+    next_account_id BIGINT NOT NULL,
+    accounts_closed BIGINT NOT NULL DEFAULT 0,
+    status VARCHAR(10) NOT NULL CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED')),
+    error_message VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (cycle_end_date, partition_index)
+);
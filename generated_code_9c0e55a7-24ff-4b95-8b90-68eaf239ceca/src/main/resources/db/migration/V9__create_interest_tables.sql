@@ -0,0 +1,39 @@
+-- Annual interest rate per transaction type and category, in basis points (2199 = 21.99%)
+CREATE TABLE interest_rates (
+    type_code VARCHAR(2) NOT NULL,
+    category_code INT NOT NULL,
+    annual_rate_bps INT NOT NULL CHECK (annual_rate_bps >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (type_code, category_code),
+    FOREIGN KEY (type_code, category_code) REFERENCES transaction_categories(type_code, category_code)
+);
+
+-- One row per interest calculation date, so a date is never charged twice
+CREATE TABLE interest_runs (
+    run_date DATE NOT NULL PRIMARY KEY,
+    status VARCHAR(10) NOT NULL CHECK (status IN ('RUNNING', 'COMPLETED', 'FAILED')),
+    balance_rows BIGINT NOT NULL DEFAULT 0,
+    accounts_charged BIGINT NOT NULL DEFAULT 0,
+    accounts_rejected BIGINT NOT NULL DEFAULT 0,
+    total_interest DECIMAL(19,2) NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Interest is posted as a fee transaction
+INSERT INTO transaction_categories (type_code, category_code, category_description) VALUES
+('FE', 4004, 'Interest Charge');
+
+INSERT INTO interest_rates (type_code, category_code, annual_rate_bps) VALUES
+('DB', 1001, 2199),
+('DB', 1002, 2199),
+('DB', 1003, 2199),
+('DB', 1004, 2199),
+('DB', 1005, 2199),
+('DB', 1006, 2499),
+('DB', 1007, 1899),
+('DB', 1008, 1899),
+('FE', 4001, 2199),
+('FE', 4002, 2199),
+('FE', 4003, 2199);